@@ -0,0 +1,264 @@
+/******************************************************************************
+ * Compilation:  javac AncestorIntervals.java
+ * ----------------------------------------------------------------------------
+ * Offline index of a rooted DAG that answers "is 'a' an ancestor of 'v'?"
+ * without a traversal. Vertices are numbered in post-order by a DFS down the
+ * hyponym edges, starting at every vertex without hypernyms, so every
+ * descendant of a vertex gets a smaller number than the vertex itself and
+ * the subtree a vertex spans in the DFS gets a contiguous range of numbers.
+ * The descendants of 'v' (itself included) are then stored as a few sorted,
+ * disjoint intervals of post-order numbers: the range of its DFS subtree
+ * merged with the intervals of all of its hyponyms. In a mostly tree-shaped
+ * hierarchy almost every vertex needs a single interval.
+ * 
+ * 'a' is an ancestor of 'v' exactly when post[v] falls in one of the
+ * intervals of 'a', which is a binary search over those intervals. The
+ * intervals of 'v' are lows[offsets[v]] .. lows[offsets[v + 1] - 1] with the
+ * matching ends in highs.
+ * 
+ * A graph update does not renumber anything: the edges it adds (including
+ * the hypernym edges of a new vertex) are kept in a short list next to the
+ * unchanged intervals. A query then also follows the added edges reachable
+ * from 'v', each one checked with an interval probe. Once the list grows
+ * past MAX_ADDED edges the intervals are rebuilt from scratch.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.util.Arrays;
+
+
+public class AncestorIntervals {
+  
+  // Added edges kept before the intervals are rebuilt; every query with 
+  // added edges pays up to this many probes per vertex it reaches
+  private static final int MAX_ADDED = 16;
+  
+  private final int[] post;
+  private final int[] offsets;
+  private final int[] lows;
+  private final int[] highs;
+  private final int[] addedFrom;
+  private final int[] addedTo;
+  private final long buildNanos;
+  private final HypernymGraph graph;
+  
+  /* Constructor for AncestorIntervals object
+   *  -Throws "IllegalArgumentException" if the graph has a cycle
+   * 
+   * @param HypernymGraph to index (uses its vertex numbering)
+   */
+  public AncestorIntervals( HypernymGraph graph ) {
+    long startNanos = System.nanoTime();
+    this.graph = graph;
+    addedFrom = new int[0];
+    addedTo = new int[0];
+    int V = graph.V();
+    int[] adjOffsets = graph.offsets();
+    int[] revOffsets = graph.revOffsets();
+    int[] revTargets = graph.revTargets();
+    
+    // Iterative DFS down the hyponym edges: "next" is the position in a
+    // vertex's hyponym list, post[v] is -1 while 'v' is on the stack
+    post = new int[V];
+    int[] low = new int[V];
+    int[] order = new int[V];
+    int[] next = new int[V];
+    int[] stack = new int[V];
+    boolean[] seen = new boolean[V];
+    int counter = 0;
+    for ( int s = 0; s < V; s++ ) {
+      if ( adjOffsets[s] != adjOffsets[s + 1] || seen[s] ) continue;
+      int top = 0;
+      stack[top++] = s;
+      seen[s] = true;
+      post[s] = -1;
+      low[s] = counter;
+      next[s] = revOffsets[s];
+      while ( top > 0 ) {
+        int v = stack[top - 1];
+        if ( next[v] < revOffsets[v + 1] ) {
+          int w = revTargets[next[v]++];
+          if ( !seen[w] ) {
+            seen[w] = true;
+            post[w] = -1;
+            low[w] = counter;
+            next[w] = revOffsets[w];
+            stack[top++] = w;
+          }
+          else if ( post[w] < 0 ) throw new IllegalArgumentException( "graph has a cycle" );
+        }
+        else {
+          top--;
+          order[counter] = v;
+          post[v] = counter++;
+        }
+      }
+    }
+    if ( counter < V ) throw new IllegalArgumentException( "graph has a cycle" );
+    
+    // Intervals in post-order, so the intervals of every hyponym are done
+    // before they are merged into their hypernyms
+    int[] start = new int[V];
+    int[] length = new int[V];
+    int[] intervalLow = new int[2 * V];
+    int[] intervalHigh = new int[2 * V];
+    int size = 0;
+    long[] merge = new long[16];
+    for ( int i = 0; i < V; i++ ) {
+      int v = order[i];
+      int count = 0;
+      merge[count++] = (long) low[v] << 32 | post[v];
+      for ( int k = revOffsets[v]; k < revOffsets[v + 1]; k++ ) {
+        int w = revTargets[k];
+        // Hyponyms in the DFS subtree of 'v' with one interval add nothing
+        if ( length[w] == 1 && intervalLow[start[w]] >= low[v] ) continue;
+        if ( count + length[w] > merge.length )
+          merge = Arrays.copyOf( merge, Math.max( 2 * merge.length, count + length[w] ) );
+        for ( int j = start[w]; j < start[w] + length[w]; j++ ) {
+          merge[count++] = (long) intervalLow[j] << 32 | intervalHigh[j];
+        }
+      }
+      if ( count > 1 ) Arrays.sort( merge, 0, count );
+      if ( size + count > intervalLow.length ) {
+        intervalLow = Arrays.copyOf( intervalLow, Math.max( 2 * intervalLow.length, size + count ) );
+        intervalHigh = Arrays.copyOf( intervalHigh, intervalLow.length );
+      }
+      start[v] = size;
+      for ( int j = 0; j < count; j++ ) {
+        int lo = (int) ( merge[j] >>> 32 );
+        int hi = (int) merge[j];
+        // Overlapping or adjacent intervals are joined
+        if ( size > start[v] && lo <= intervalHigh[size - 1] + 1 ) {
+          if ( hi > intervalHigh[size - 1] ) intervalHigh[size - 1] = hi;
+        }
+        else {
+          intervalLow[size] = lo;
+          intervalHigh[size++] = hi;
+        }
+      }
+      length[v] = size - start[v];
+    }
+    
+    // Packs the intervals in vertex order
+    offsets = new int[V + 1];
+    lows = new int[size];
+    highs = new int[size];
+    for ( int v = 0; v < V; v++ ) {
+      offsets[v + 1] = offsets[v] + length[v];
+      System.arraycopy( intervalLow, start[v], lows, offsets[v], length[v] );
+      System.arraycopy( intervalHigh, start[v], highs, offsets[v], length[v] );
+    }
+    buildNanos = System.nanoTime() - startNanos;
+  }
+  
+  // Same intervals as 'base' with a new list of added edges
+  private AncestorIntervals( AncestorIntervals base, HypernymGraph graph, int[] addedFrom, int[] addedTo ) {
+    this.graph = graph;
+    post = base.post;
+    offsets = base.offsets;
+    lows = base.lows;
+    highs = base.highs;
+    buildNanos = base.buildNanos;
+    this.addedFrom = addedFrom;
+    this.addedTo = addedTo;
+  }
+  
+  /* Method for the index of an updated graph
+   *  -The intervals are shared; the edges from[i]->to[i] the update added
+   *   are appended to the added edges, or the intervals are rebuilt if 
+   *   there would be more than MAX_ADDED of them
+   * 
+   * @param HypernymGraph after the update and 2 int arrays of the edges it
+   *        added (graph numbering)
+   * @return AncestorIntervals object for the updated graph
+   */
+  AncestorIntervals withEdges( HypernymGraph updated, int[] from, int[] to ) {
+    int n = addedFrom.length;
+    if ( n + from.length > MAX_ADDED ) return new AncestorIntervals( updated );
+    int[] newFrom = Arrays.copyOf( addedFrom, n + from.length );
+    int[] newTo = Arrays.copyOf( addedTo, n + to.length );
+    System.arraycopy( from, 0, newFrom, n, from.length );
+    System.arraycopy( to, 0, newTo, n, to.length );
+    return new AncestorIntervals( this, updated, newFrom, newTo );
+  }
+  
+  /* Method for checking whether 'a' is an ancestor of 'v' (a vertex counts
+   * as its own ancestor)
+   *  -Binary search for the last interval of 'a' starting at or before
+   *   post[v]
+   *  -With added edges, every added edge whose lower end is 'v' or above it
+   *   makes its upper end reachable too; 'a' is an ancestor if it is above
+   *   any vertex reached that way (each edge is followed at most once)
+   * 
+   * @param 2 int variables representing vertices (graph numbering)
+   * @return boolean value representing if 'v' is 'a' or below it
+   */
+  public boolean isAncestor( int a, int v ) {
+    if ( addedFrom.length == 0 ) return probe( a, v );
+    int[] reached = new int[addedFrom.length + 1];
+    boolean[] followed = new boolean[addedFrom.length];
+    int count = 0;
+    reached[count++] = v;
+    for ( int i = 0; i < count; i++ ) {
+      int x = reached[i];
+      if ( covers( a, x ) ) return true;
+      for ( int j = 0; j < addedFrom.length; j++ ) {
+        if ( !followed[j] && covers( addedFrom[j], x ) ) {
+          followed[j] = true;
+          reached[count++] = addedTo[j];
+        }
+      }
+    }
+    return false;
+  }
+  
+  // True if 'a' is 'v' or above it without the added edges (vertices added
+  // after the intervals were built have none)
+  private boolean covers( int a, int v ) {
+    if ( a == v ) return true;
+    return a < post.length && v < post.length && probe( a, v );
+  }
+  
+  private boolean probe( int a, int v ) {
+    int p = post[v];
+    if ( p > post[a] ) return false;
+    int lo = offsets[a];
+    int hi = offsets[a + 1] - 1;
+    while ( lo < hi ) {
+      int mid = ( lo + hi + 1 ) >>> 1;
+      if ( lows[mid] <= p ) lo = mid;
+      else hi = mid - 1;
+    }
+    return lows[lo] <= p && p <= highs[lo];
+  }
+  
+  //Returns the total amount of intervals
+  public int size() {
+    return lows.length;
+  }
+  
+  //Returns the amount of edges added since the intervals were built
+  public int added() {
+    return addedFrom.length;
+  }
+  
+  //Returns the time it took to build the index in milliseconds
+  public double buildMillis() {
+    return buildNanos / 1e6;
+  }
+  
+  //Returns the heap used by the index arrays in bytes
+  public long bytes() {
+    return 4L * ( post.length + offsets.length + lows.length + highs.length + addedFrom.length + addedTo.length );
+  }
+  
+  @Override
+  public String toString() {
+    return "AncestorIntervals[intervals=" + size() + ", added=" + added() + ", bytes=" + bytes() + ", buildMillis=" + buildMillis() + "]";
+  }
+  
+  //Returns the graph these intervals were built from
+  HypernymGraph graph() {
+    return graph;
+  }
+}
@@ -0,0 +1,250 @@
+/******************************************************************************
+ * Compilation:  javac DistanceLabels.java
+ * ----------------------------------------------------------------------------
+ * Offline index of a rooted DAG that stores, for every vertex, all of its 
+ * ancestors (itself included) together with their BFS distances. The labels
+ * of vertex 'v' are ancestors[offsets[v]] .. ancestors[offsets[v + 1] - 1]
+ * sorted by ancestor id, with the matching distances at the same positions.
+ * A shortest common ancestor query then becomes a merge of two label lists
+ * with no graph traversal.
+ * 
+ * Labels are built in topological order from the root down: the label of a
+ * vertex is itself at distance 0 plus the labels of its hypernyms one step
+ * further away (keeping the smallest distance per ancestor). After a graph
+ * update only the labels of vertices whose ancestors changed are rebuilt
+ * that way; the others are copied over.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.util.Arrays;
+
+
+public class DistanceLabels {
+  
+  private final int[] offsets;
+  private final int[] ancestors;
+  private final int[] distances;
+  private final long buildNanos;
+  private final HypernymGraph graph;
+  
+  /* Constructor for DistanceLabels object
+   *  -Throws "IllegalArgumentException" if the graph has a cycle
+   * 
+   * @param HypernymGraph to index (labels use its vertex numbering)
+   */
+  public DistanceLabels( HypernymGraph graph ) {
+    this( graph, labelAll( graph ) );
+  }
+  
+  // Packs the labels of a finished builder in vertex order
+  private DistanceLabels( HypernymGraph graph, Builder builder ) {
+    this.graph = graph;
+    int V = graph.V();
+    int[] start = builder.start;
+    int[] length = builder.length;
+    offsets = new int[V + 1];
+    for ( int v = 0; v < V; v++ ) {
+      offsets[v + 1] = offsets[v] + length[v];
+    }
+    ancestors = new int[offsets[V]];
+    distances = new int[offsets[V]];
+    for ( int v = 0; v < V; v++ ) {
+      System.arraycopy( builder.anc, start[v], ancestors, offsets[v], length[v] );
+      System.arraycopy( builder.dist, start[v], distances, offsets[v], length[v] );
+    }
+    buildNanos = System.nanoTime() - builder.startNanos;
+  }
+  
+  private static Builder labelAll( HypernymGraph graph ) {
+    Builder builder = new Builder( graph.V(), 4 * graph.V() );
+    int V = graph.V();
+    int[] adjOffsets = graph.offsets();
+    // Reverse (hyponym) adjacency, needed to walk from the root down
+    int[] revOffsets = graph.revOffsets();
+    int[] revTargets = graph.revTargets();
+    
+    // Kahn's algorithm: a vertex is ready once all of its hypernyms are done
+    int[] pending = new int[V];
+    int[] order = new int[V];
+    int tail = 0;
+    for ( int v = 0; v < V; v++ ) {
+      pending[v] = adjOffsets[v + 1] - adjOffsets[v];
+      if ( pending[v] == 0 ) order[tail++] = v;
+    }
+    for ( int head = 0; head < tail; head++ ) {
+      int v = order[head];
+      builder.label( v, graph );
+      for ( int k = revOffsets[v]; k < revOffsets[v + 1]; k++ ) {
+        int child = revTargets[k];
+        if ( --pending[child] == 0 ) order[tail++] = child;
+      }
+    }
+    if ( tail < V ) throw new IllegalArgumentException( "graph has a cycle" );
+    return builder;
+  }
+  
+  /* Methods for the labels of an updated graph, recomputing only the 
+   * labels the update changed; all others are copied
+   *  -withVertices labels the vertices the graph gained (new vertices have
+   *   no descendants, so no other label changes)
+   *  -withEdge relabels 'v' and its descendants after the edge v->w was
+   *   added, in topological order among themselves
+   * 
+   * @param HypernymGraph after the update, and for withEdge the vertices 
+   *        to relabel ('v' and all of its descendants, graph numbering)
+   * @return new DistanceLabels object; this one is left unchanged
+   */
+  DistanceLabels withVertices( HypernymGraph updated ) {
+    Builder builder = new Builder( this, updated.V() );
+    for ( int v = graph.V(); v < updated.V(); v++ ) {
+      builder.label( v, updated );
+    }
+    return new DistanceLabels( updated, builder );
+  }
+  
+  DistanceLabels withEdge( HypernymGraph updated, int[] affected ) {
+    Builder builder = new Builder( this, updated.V() );
+    int[] adjOffsets = updated.offsets();
+    int[] adjTargets = updated.targets();
+    int[] revOffsets = updated.revOffsets();
+    int[] revTargets = updated.revTargets();
+    boolean[] inSet = new boolean[updated.V()];
+    for ( int v : affected ) inSet[v] = true;
+    
+    // Kahn's algorithm among the affected vertices only
+    int[] pending = new int[updated.V()];
+    int[] order = new int[affected.length];
+    int tail = 0;
+    for ( int v : affected ) {
+      for ( int k = adjOffsets[v]; k < adjOffsets[v + 1]; k++ ) {
+        if ( inSet[adjTargets[k]] ) pending[v]++;
+      }
+      if ( pending[v] == 0 ) order[tail++] = v;
+    }
+    for ( int head = 0; head < tail; head++ ) {
+      int v = order[head];
+      builder.label( v, updated );
+      for ( int k = revOffsets[v]; k < revOffsets[v + 1]; k++ ) {
+        int child = revTargets[k];
+        if ( inSet[child] && --pending[child] == 0 ) order[tail++] = child;
+      }
+    }
+    if ( tail < affected.length ) throw new IllegalArgumentException( "graph has a cycle" );
+    return new DistanceLabels( updated, builder );
+  }
+  
+  // Range of vertex 'v''s labels in ancestors()/distances()
+  public int from( int v ) {
+    return offsets[v];
+  }
+  
+  public int to( int v ) {
+    return offsets[v + 1];
+  }
+  
+  public int ancestor( int i ) {
+    return ancestors[i];
+  }
+  
+  public int distance( int i ) {
+    return distances[i];
+  }
+  
+  //Returns the total amount of (ancestor, distance) labels
+  public int size() {
+    return ancestors.length;
+  }
+  
+  //Returns the time it took to build the index in milliseconds
+  public double buildMillis() {
+    return buildNanos / 1e6;
+  }
+  
+  //Returns the heap used by the index arrays in bytes
+  public long bytes() {
+    return 4L * ( offsets.length + ancestors.length + distances.length );
+  }
+  
+  @Override
+  public String toString() {
+    return "DistanceLabels[labels=" + size() + ", bytes=" + bytes() + ", buildMillis=" + buildMillis() + "]";
+  }
+  
+  //Returns the graph these labels were built from
+  HypernymGraph graph() {
+    return graph;
+  }
+  
+  // Label lists under construction: the labels of 'v' are 
+  // anc[start[v]] .. anc[start[v] + length[v] - 1], appended as they are 
+  // built (a relabeled vertex leaves its old list behind until packing)
+  private static class Builder {
+    
+    private final long startNanos = System.nanoTime();
+    private final int[] start;
+    private final int[] length;
+    private int[] anc;
+    private int[] dist;
+    private int size;
+    private final int[] best;
+    private final int[] touched;
+    
+    Builder( int V, int capacity ) {
+      start = new int[V];
+      length = new int[V];
+      anc = new int[capacity];
+      dist = new int[capacity];
+      best = new int[V];
+      Arrays.fill( best, -1 );
+      touched = new int[V];
+    }
+    
+    // Starts from the labels of an existing index, for V >= its vertices
+    Builder( DistanceLabels labels, int V ) {
+      this( V, labels.size() + 4 * ( V - labels.graph.V() ) + 64 );
+      int n = labels.graph.V();
+      System.arraycopy( labels.offsets, 0, start, 0, n );
+      for ( int v = 0; v < n; v++ ) {
+        length[v] = labels.offsets[v + 1] - labels.offsets[v];
+      }
+      System.arraycopy( labels.ancestors, 0, anc, 0, labels.size() );
+      System.arraycopy( labels.distances, 0, dist, 0, labels.size() );
+      size = labels.size();
+    }
+    
+    // Appends the label of 'v': itself at distance 0 plus the labels of its
+    // hypernyms one step further away, keeping the smallest distance per 
+    // ancestor (the hypernyms must already be labeled)
+    void label( int v, HypernymGraph graph ) {
+      int[] adjOffsets = graph.offsets();
+      int[] adjTargets = graph.targets();
+      int count = 0;
+      best[v] = 0;
+      touched[count++] = v;
+      for ( int k = adjOffsets[v]; k < adjOffsets[v + 1]; k++ ) {
+        int p = adjTargets[k];
+        for ( int i = start[p]; i < start[p] + length[p]; i++ ) {
+          int a = anc[i];
+          int d = dist[i] + 1;
+          if ( best[a] < 0 ) {
+            best[a] = d;
+            touched[count++] = a;
+          }
+          else if ( d < best[a] ) best[a] = d;
+        }
+      }
+      Arrays.sort( touched, 0, count );
+      if ( size + count > anc.length ) {
+        anc = Arrays.copyOf( anc, Math.max( 2 * anc.length, size + count ) );
+        dist = Arrays.copyOf( dist, anc.length );
+      }
+      start[v] = size;
+      length[v] = count;
+      for ( int i = 0; i < count; i++ ) {
+        anc[size] = touched[i];
+        dist[size++] = best[touched[i]];
+        best[touched[i]] = -1;
+      }
+    }
+  }
+}
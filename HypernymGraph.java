@@ -0,0 +1,343 @@
+/******************************************************************************
+ * Compilation:  javac HypernymGraph.java
+ * ----------------------------------------------------------------------------
+ * Immutable compressed-sparse-row representation of the hypernym DAG used
+ * by ShortestCommonAncestor. The hypernyms of vertex 'v' are
+ * targets[offsets[v]] .. targets[offsets[v + 1] - 1] and its hyponyms are
+ * revTargets[revOffsets[v]] .. revTargets[revOffsets[v + 1] - 1].
+ * 
+ * Vertices are renumbered in breadth-first order going down from the root
+ * (or roots), so a synset's ancestors get small, nearby numbers and the
+ * upward searches keep touching the same few cache lines of the arrays.
+ * toInternal/toOriginal map between synset ids and the new numbers; the
+ * mapping is applied once per query at the ShortestCommonAncestor boundary.
+ * The depth of every vertex (its distance below the root, i.e. from the 
+ * nearest vertex without hypernyms) is computed once per graph.
+ * Updates never modify a graph: withVertex/withEdge return a changed copy
+ * (new vertices are numbered after the existing ones, so vertex numbers
+ * never change). The copy is O(V + E) array copying, but the reverse
+ * adjacency and the depths are patched only where the update reaches
+ * instead of being rebuilt.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.util.Arrays;
+
+
+public class HypernymGraph {
+  
+  private final int[] offsets;
+  private final int[] targets;
+  private final int[] revOffsets;
+  private final int[] revTargets;
+  private final int[] toInternal;
+  private final int[] toOriginal;
+  private final int[] depth;
+  private final int maxDepth;
+  
+  /* Constructor for a graph whose arrays are already renumbered 
+   *  (e.g. read from a snapshot); the arrays are used as is, not copied
+   */
+  HypernymGraph( int[] offsets, int[] targets, int[] revOffsets, int[] revTargets, 
+                 int[] toInternal, int[] toOriginal ) {
+    this( offsets, targets, revOffsets, revTargets, toInternal, toOriginal, 
+          depths( offsets, revOffsets, revTargets ) );
+  }
+  
+  // Same, with the depths already known (patched by an update)
+  private HypernymGraph( int[] offsets, int[] targets, int[] revOffsets, int[] revTargets, 
+                         int[] toInternal, int[] toOriginal, int[] depth ) {
+    this.offsets = offsets;
+    this.targets = targets;
+    this.revOffsets = revOffsets;
+    this.revTargets = revTargets;
+    this.toInternal = toInternal;
+    this.toOriginal = toOriginal;
+    this.depth = depth;
+    int max = 0;
+    for ( int d : depth ) {
+      if ( d > max ) max = d;
+    }
+    maxDepth = max;
+  }
+  
+  // BFS down the hyponym edges from every vertex without hypernyms
+  private static int[] depths( int[] offsets, int[] revOffsets, int[] revTargets ) {
+    int V = offsets.length - 1;
+    int[] depth = new int[V];
+    Arrays.fill( depth, -1 );
+    int[] queue = new int[V];
+    int tail = 0;
+    for ( int v = 0; v < V; v++ ) {
+      if ( offsets[v] == offsets[v + 1] ) {
+        depth[v] = 0;
+        queue[tail++] = v;
+      }
+    }
+    for ( int head = 0; head < tail; head++ ) {
+      int v = queue[head];
+      for ( int k = revOffsets[v]; k < revOffsets[v + 1]; k++ ) {
+        if ( depth[revTargets[k]] < 0 ) {
+          depth[revTargets[k]] = depth[v] + 1;
+          queue[tail++] = revTargets[k];
+        }
+      }
+    }
+    return depth;
+  }
+  
+  /* Method for building the renumbered graph from an adjacency in synset id
+   * order
+   *  -Runs a BFS down the hyponym edges starting from every vertex without
+   *   hypernyms (in id order); vertices it cannot reach (only possible if
+   *   the graph has a cycle) are numbered after it in id order
+   * 
+   * @param int arrays of V + 1 offsets and the hypernym targets, in synset ids
+   * @return HypernymGraph object
+   */
+  public static HypernymGraph build( int[] adjOffsets, int[] adjTargets ) {
+    int V = adjOffsets.length - 1;
+    int[] rOffsets = new int[V + 1];
+    int[] rTargets = new int[adjTargets.length];
+    reverse( adjOffsets, adjTargets, rOffsets, rTargets );
+    
+    int[] toInternal = new int[V];
+    int[] toOriginal = new int[V];
+    Arrays.fill( toInternal, -1 );
+    int tail = 0;
+    for ( int v = 0; v < V; v++ ) {
+      if ( adjOffsets[v] == adjOffsets[v + 1] ) {
+        toInternal[v] = tail;
+        toOriginal[tail++] = v;
+      }
+    }
+    for ( int head = 0; head < tail; head++ ) {
+      int v = toOriginal[head];
+      for ( int k = rOffsets[v]; k < rOffsets[v + 1]; k++ ) {
+        int child = rTargets[k];
+        if ( toInternal[child] < 0 ) {
+          toInternal[child] = tail;
+          toOriginal[tail++] = child;
+        }
+      }
+    }
+    for ( int v = 0; v < V && tail < V; v++ ) {
+      if ( toInternal[v] < 0 ) {
+        toInternal[v] = tail;
+        toOriginal[tail++] = v;
+      }
+    }
+    
+    int[] offsets = new int[V + 1];
+    int[] targets = new int[adjTargets.length];
+    for ( int u = 0; u < V; u++ ) {
+      int v = toOriginal[u];
+      offsets[u + 1] = offsets[u];
+      for ( int k = adjOffsets[v]; k < adjOffsets[v + 1]; k++ ) {
+        targets[offsets[u + 1]++] = toInternal[adjTargets[k]];
+      }
+    }
+    return withReverse( offsets, targets, toInternal, toOriginal );
+  }
+  
+  /* Method for a copy of this graph with one more vertex (given the next
+   * synset id, which is also its vertex number) and its hypernyms
+   *  -The new vertex is appended to the hyponym lists of its hypernyms and
+   *   its depth is one more than the smallest depth among them; no other
+   *   depth changes
+   * 
+   * @param int array of distinct hypernyms (vertex numbers of this graph)
+   * @return new HypernymGraph object; this one is left unchanged
+   */
+  HypernymGraph withVertex( int[] hypernyms ) {
+    int V = V();
+    int[] offsets = Arrays.copyOf( this.offsets, V + 2 );
+    offsets[V + 1] = offsets[V] + hypernyms.length;
+    int[] targets = Arrays.copyOf( this.targets, offsets[V + 1] );
+    System.arraycopy( hypernyms, 0, targets, offsets[V], hypernyms.length );
+    int[] toInternal = Arrays.copyOf( this.toInternal, V + 1 );
+    int[] toOriginal = Arrays.copyOf( this.toOriginal, V + 1 );
+    toInternal[V] = V;
+    toOriginal[V] = V;
+    
+    int[] sorted = hypernyms.clone();
+    Arrays.sort( sorted );
+    int[] revOffsets = new int[V + 2];
+    int[] revTargets = new int[targets.length];
+    insertHyponym( V, sorted, revOffsets, revTargets );
+    
+    int[] depth = Arrays.copyOf( this.depth, V + 1 );
+    depth[V] = hypernyms.length == 0 ? 0 : -1;
+    for ( int w : hypernyms ) {
+      if ( this.depth[w] >= 0 && ( depth[V] < 0 || this.depth[w] + 1 < depth[V] ) ) depth[V] = this.depth[w] + 1;
+    }
+    return new HypernymGraph( offsets, targets, revOffsets, revTargets, toInternal, toOriginal, depth );
+  }
+  
+  /* Method for a copy of this graph with one more hypernym edge v->w
+   *  -'v' is inserted in the hyponym list of 'w'; depths can only get
+   *   smaller, so only 'v' and the descendants the shorter path reaches are
+   *   relaxed (BFS down from 'v'). If 'v' had no hypernyms it stops being a
+   *   root and the depths are recomputed instead
+   * 
+   * @param 2 int variables representing vertex numbers of this graph
+   * @return new HypernymGraph object; this one is left unchanged
+   */
+  HypernymGraph withEdge( int v, int w ) {
+    int V = V();
+    int[] offsets = Arrays.copyOf( this.offsets, V + 1 );
+    for ( int u = v + 1; u <= V; u++ ) {
+      offsets[u]++;
+    }
+    int end = this.offsets[v + 1];
+    int[] targets = new int[this.targets.length + 1];
+    System.arraycopy( this.targets, 0, targets, 0, end );
+    targets[end] = w;
+    System.arraycopy( this.targets, end, targets, end + 1, this.targets.length - end );
+    
+    int[] revOffsets = new int[V + 1];
+    int[] revTargets = new int[targets.length];
+    insertHyponym( v, new int[] { w }, revOffsets, revTargets );
+    
+    if ( this.offsets[v] == this.offsets[v + 1] ) {
+      return new HypernymGraph( offsets, targets, revOffsets, revTargets, toInternal, toOriginal );
+    }
+    int[] depth = this.depth;
+    if ( this.depth[w] >= 0 && ( this.depth[v] < 0 || this.depth[w] + 1 < this.depth[v] ) ) {
+      // BFS from 'v' only: the first time it lowers a depth is final
+      depth = this.depth.clone();
+      depth[v] = this.depth[w] + 1;
+      int[] queue = new int[V];
+      int tail = 0;
+      queue[tail++] = v;
+      for ( int head = 0; head < tail; head++ ) {
+        int x = queue[head];
+        for ( int k = revOffsets[x]; k < revOffsets[x + 1]; k++ ) {
+          int child = revTargets[k];
+          if ( depth[child] < 0 || depth[x] + 1 < depth[child] ) {
+            depth[child] = depth[x] + 1;
+            queue[tail++] = child;
+          }
+        }
+      }
+    }
+    return new HypernymGraph( offsets, targets, revOffsets, revTargets, toInternal, toOriginal, depth );
+  }
+  
+  // Fills in the reverse adjacency of this graph with hyponym 'v' added to
+  // the (sorted, distinct) vertices 'ws', keeping every hyponym list in
+  // ascending order as reverse() builds it; revOffsets may have one more
+  // vertex than this graph (the new vertex 'v', without hyponyms)
+  private void insertHyponym( int v, int[] ws, int[] revOffsets, int[] revTargets ) {
+    int V = V();
+    int shift = 0;
+    for ( int u = 0; u + 1 < revOffsets.length; u++ ) {
+      if ( shift < ws.length && ws[shift] == u ) shift++;
+      revOffsets[u + 1] = this.revOffsets[Math.min( u + 1, V )] + shift;
+    }
+    int from = 0;
+    int to = 0;
+    for ( int w : ws ) {
+      int at = this.revOffsets[w];
+      while ( at < this.revOffsets[w + 1] && this.revTargets[at] < v ) at++;
+      System.arraycopy( this.revTargets, from, revTargets, to, at - from );
+      to += at - from;
+      from = at;
+      revTargets[to++] = v;
+    }
+    System.arraycopy( this.revTargets, from, revTargets, to, this.revTargets.length - from );
+  }
+  
+  //Returns true if 'v' already has 'w' as a hypernym
+  boolean hasEdge( int v, int w ) {
+    for ( int k = offsets[v]; k < offsets[v + 1]; k++ ) {
+      if ( targets[k] == w ) return true;
+    }
+    return false;
+  }
+  
+  private static HypernymGraph withReverse( int[] offsets, int[] targets, int[] toInternal, int[] toOriginal ) {
+    int[] revOffsets = new int[offsets.length];
+    int[] revTargets = new int[targets.length];
+    reverse( offsets, targets, revOffsets, revTargets );
+    return new HypernymGraph( offsets, targets, revOffsets, revTargets, toInternal, toOriginal );
+  }
+  
+  // Fills in the reverse of a compressed-sparse-row adjacency
+  private static void reverse( int[] offsets, int[] targets, int[] revOffsets, int[] revTargets ) {
+    int V = offsets.length - 1;
+    for ( int k = 0; k < targets.length; k++ ) {
+      revOffsets[targets[k] + 1]++;
+    }
+    for ( int v = 0; v < V; v++ ) {
+      revOffsets[v + 1] += revOffsets[v];
+    }
+    int[] next = Arrays.copyOf( revOffsets, V );
+    for ( int v = 0; v < V; v++ ) {
+      for ( int k = offsets[v]; k < offsets[v + 1]; k++ ) {
+        revTargets[next[targets[k]]++] = v;
+      }
+    }
+  }
+  
+  //Returns the amount of vertices
+  public int V() {
+    return toOriginal.length;
+  }
+  
+  //Returns the amount of hypernym edges
+  public int E() {
+    return targets.length;
+  }
+  
+  //Maps a synset id to its vertex number in this graph and back
+  public int internal( int synsetID ) {
+    return toInternal[synsetID];
+  }
+  
+  public int original( int v ) {
+    return toOriginal[v];
+  }
+  
+  //Returns the depth of vertex 'v' below the root (-1 if only reachable 
+  //through a cycle)
+  public int depth( int v ) {
+    return depth[v];
+  }
+  
+  //Returns the largest depth of any vertex
+  public int maxDepth() {
+    return maxDepth;
+  }
+  
+  //Returns the heap used by the graph arrays in bytes
+  public long bytes() {
+    return 4L * ( offsets.length + targets.length + revOffsets.length + revTargets.length 
+                   + toInternal.length + toOriginal.length + depth.length );
+  }
+  
+  // Raw arrays (internal numbering) for the search code and snapshots
+  int[] offsets() {
+    return offsets;
+  }
+  
+  int[] targets() {
+    return targets;
+  }
+  
+  int[] revOffsets() {
+    return revOffsets;
+  }
+  
+  int[] revTargets() {
+    return revTargets;
+  }
+  
+  int[] toInternal() {
+    return toInternal;
+  }
+  
+  int[] toOriginal() {
+    return toOriginal;
+  }
+}
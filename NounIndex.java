@@ -0,0 +1,251 @@
+/******************************************************************************
+ * Compilation:  javac NounIndex.java
+ * Dependencies: StringArena.java
+ * ----------------------------------------------------------------------------
+ * Dictionary from WordNet nouns to the ids of the synsets they appear in.
+ * Every distinct noun is given an ordinal and stored as a span of the bytes
+ * of the first synset it appears in (a span StringArena over the synsets,
+ * so no noun is copied);
+ * the synset ids of all nouns live in one int buffer where the ids of the
+ * noun with ordinal 'n' are ids[idOffsets[n]] .. ids[idOffsets[n + 1] - 1]
+ * (compressed-sparse-row layout). Lookups go through an open-addressing
+ * table of ordinals keyed by String.hashCode(), so a lookup is a hash probe
+ * with no string splitting or decoding. All of the buffers can be backed by
+ * a memory-mapped snapshot file.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+public class NounIndex {
+  
+  private final StringArena nouns;
+  private final IntBuffer idOffsets;
+  private final IntBuffer ids;
+  // slots[h] holds (ordinal + 1) of a noun hashing to 'h', or 0 if empty
+  private final IntBuffer slots;
+  private final int mask;
+  
+  /* Constructor for NounIndex object over existing buffers
+   * 
+   * @param StringArena of nouns, the CSR id buffers and the hash slots 
+   *        (whose length must be a power of 2)
+   */
+  NounIndex( StringArena nouns, IntBuffer idOffsets, IntBuffer ids, IntBuffer slots ) {
+    this.nouns = nouns;
+    this.idOffsets = idOffsets;
+    this.ids = ids;
+    this.slots = slots;
+    this.mask = slots.limit() - 1;
+  }
+  
+  /* Method for building a NounIndex from the synsets
+   *  -First pass walks the UTF-8 bytes of every synset, gives every distinct
+   *   noun an ordinal (deduplicating through the lookup table itself, by
+   *   comparing bytes) and counts its synsets; no String is created
+   *  -Second pass turns the counts into offsets and fills in the synset ids
+   *   (already in ascending order since synsets are read in id order)
+   * 
+   * @param StringArena of synsets (space separated nouns, indexed by synset 
+   *        id) and the total amount of nouns in it (used to size the 
+   *        per-noun arrays; a wrong count only costs resizing)
+   * @return NounIndex object backed by heap buffers, whose nouns point into
+   *         the bytes of "synsets"
+   */
+  public static NounIndex build( StringArena synsets, int nounCount ) {
+    int V = synsets.size();
+    ByteBuffer bytes = synsets.bytes();
+    // Per distinct noun (grown as nouns are found)
+    int capacity = 1024;
+    int[] table = new int[2 * capacity];
+    int[] starts = new int[capacity];
+    int[] ends = new int[capacity];
+    int[] hashes = new int[capacity];
+    int[] lastSynset = new int[capacity];
+    int[] counts = new int[capacity + 1];
+    // Per noun occurrence
+    int[] nounOf = new int[nounCount];
+    int[] synsetOf = new int[nounCount];
+    int n = 0;
+    int k = 0;
+    for ( int v = 0; v < V; v++ ) {
+      int end = synsets.end( v );
+      for ( int from = synsets.start( v ), to; from < end; from = to + 1 ) {
+        to = from;
+        while ( to < end && bytes.get( to ) != ' ' ) to++;
+        if ( to == from ) continue;
+        int h = StringArena.hashCode( bytes, from, to );
+        int mask = table.length - 1;
+        int slot = hash( h ) & mask;
+        while ( table[slot] != 0 && !sameNoun( bytes, table[slot] - 1, starts, ends, hashes, from, to, h ) ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        if ( table[slot] == 0 ) {
+          if ( n == capacity ) {
+            capacity *= 2;
+            starts = Arrays.copyOf( starts, capacity );
+            ends = Arrays.copyOf( ends, capacity );
+            hashes = Arrays.copyOf( hashes, capacity );
+            lastSynset = Arrays.copyOf( lastSynset, capacity );
+            counts = Arrays.copyOf( counts, capacity + 1 );
+            table = hashSlots( hashes, n, 2 * capacity );
+            mask = table.length - 1;
+            slot = hash( h ) & mask;
+            while ( table[slot] != 0 ) slot = ( slot + 1 ) & mask;
+          }
+          starts[n] = from;
+          ends[n] = to;
+          hashes[n] = h;
+          lastSynset[n] = -1;
+          table[slot] = ++n;
+        }
+        int ordinal = table[slot] - 1;
+        // Skips a noun that is listed twice in the same synset
+        if ( lastSynset[ordinal] == v ) continue;
+        lastSynset[ordinal] = v;
+        if ( k == nounOf.length ) {
+          nounOf = Arrays.copyOf( nounOf, 2 * k + 1 );
+          synsetOf = Arrays.copyOf( synsetOf, nounOf.length );
+        }
+        nounOf[k] = ordinal;
+        synsetOf[k++] = v;
+        counts[ordinal + 1]++;
+      }
+    }
+    
+    int[] idOffsets = new int[n + 1];
+    for ( int i = 0; i < n; i++ ) {
+      idOffsets[i + 1] = idOffsets[i] + counts[i + 1];
+    }
+    int[] ids = new int[k];
+    int[] next = Arrays.copyOf( idOffsets, n );
+    for ( int i = 0; i < k; i++ ) {
+      ids[next[nounOf[i]]++] = synsetOf[i];
+    }
+    StringArena nouns = new StringArena( bytes, IntBuffer.wrap( Arrays.copyOf( starts, n ) ), 
+                                         IntBuffer.wrap( Arrays.copyOf( ends, n ) ) );
+    // The table stays at most half full while growing; it is only laid out
+    // again if it ended up larger than the smallest table that does that
+    int size = 2;
+    while ( size < 2 * n ) size <<= 1;
+    if ( table.length != size ) table = hashSlots( hashes, n, size );
+    return new NounIndex( nouns, IntBuffer.wrap( idOffsets ), IntBuffer.wrap( ids ), IntBuffer.wrap( table ) );
+  }
+  
+  // True if noun 'ordinal' has the bytes[from] .. bytes[to - 1] with hash h
+  private static boolean sameNoun( ByteBuffer bytes, int ordinal, int[] starts, int[] ends, int[] hashes, 
+                                   int from, int to, int h ) {
+    if ( hashes[ordinal] != h || ends[ordinal] - starts[ordinal] != to - from ) return false;
+    for ( int i = starts[ordinal], j = from; j < to; i++, j++ ) {
+      if ( bytes.get( i ) != bytes.get( j ) ) return false;
+    }
+    return true;
+  }
+  
+  /* Method for laying out the open-addressing table for a list of nouns
+   * 
+   * @param int array of the String.hashCode() of every distinct noun 
+   *        (position = ordinal), the amount of nouns and the table size (a
+   *        power of 2 larger than the amount of nouns)
+   * @return int array of slots holding ordinal + 1 (0 = empty)
+   */
+  private static int[] hashSlots( int[] hashes, int n, int size ) {
+    int[] slots = new int[size];
+    for ( int ordinal = 0; ordinal < n; ordinal++ ) {
+      int h = hash( hashes[ordinal] ) & ( size - 1 );
+      while ( slots[h] != 0 ) h = ( h + 1 ) & ( size - 1 );
+      slots[h] = ordinal + 1;
+    }
+    return slots;
+  }
+  
+  // String.hashCode() is fixed by the language spec, so tables written into a
+  // snapshot stay valid across JVMs; the high bits are mixed in for the mask
+  private static int hash( int h ) {
+    return h ^ ( h >>> 16 );
+  }
+  
+  /* Method for looking up the ordinal of a noun
+   * 
+   * @param String object "noun"
+   * @return int variable representing the ordinal (-1 if not a noun)
+   */
+  public int indexOf( String noun ) {
+    if ( noun == null ) throw new IllegalArgumentException( "noun is null" );
+    for ( int h = hash( noun.hashCode() ) & mask; ; h = ( h + 1 ) & mask ) {
+      int slot = slots.get( h );
+      if ( slot == 0 ) return -1;
+      if ( nouns.equalsAt( slot - 1, noun ) ) return slot - 1;
+    }
+  }
+  
+  public boolean contains( String noun ) {
+    return indexOf( noun ) >= 0;
+  }
+  
+  //Returns the amount of distinct nouns
+  public int size() {
+    return nouns.size();
+  }
+  
+  //Returns the noun with the given ordinal
+  public String noun( int ordinal ) {
+    return nouns.get( ordinal );
+  }
+  
+  //Returns an iterable list of the distinct nouns, decoded one at a time
+  public Iterable<String> nouns() {
+    return new Iterable<String>() {
+      public Iterator<String> iterator() {
+        return new Iterator<String>() {
+          private int next = 0;
+          
+          public boolean hasNext() {
+            return next < nouns.size();
+          }
+          
+          public String next() {
+            if ( !hasNext() ) throw new NoSuchElementException();
+            return nouns.get( next++ );
+          }
+        };
+      }
+    };
+  }
+  
+  /* Method for returning the synset ids of the noun with the given ordinal
+   * 
+   * @param int variable representing a noun ordinal
+   * @return copy of the noun's slice of the synset id buffer
+   */
+  public int[] synsetIDs( int ordinal ) {
+    int from = idOffsets.get( ordinal );
+    int[] slice = new int[idOffsets.get( ordinal + 1 ) - from];
+    for ( int i = 0; i < slice.length; i++ ) {
+      slice[i] = ids.get( from + i );
+    }
+    return slice;
+  }
+  
+  // Buffers backing the index (used when writing a snapshot)
+  StringArena nounArena() {
+    return nouns;
+  }
+  
+  IntBuffer idOffsets() {
+    return idOffsets;
+  }
+  
+  IntBuffer ids() {
+    return ids;
+  }
+  
+  IntBuffer slots() {
+    return slots;
+  }
+}
@@ -1,6 +1,6 @@
 /******************************************************************************
  * Compilation:  javac Outcast.java
- * Dependencies: WordNet.java
+ * Dependencies: WordNet.java, ParallelBatch.java
  * ----------------------------------------------------------------------------
  * Program takes in a list of WordNet nouns and determines the "outcast" of the 
  * set (by finding the distances between the nouns).
@@ -21,31 +21,60 @@ public class Outcast {
   /* Method for returning the Outcast noun of a set
    * -Finds the outcast by computing the sum of distances between each noun and
    *  all the others
+   *   -Every noun's synset ids are looked up once and searched with a single
+   *    BFS, whose ancestors are then shared by all of that noun's pairs
+   *   -Distances are symmetric, so only the upper triangle of the distance
+   *    matrix is computed (rows in parallel) and each value counts for both
+   *    nouns of the pair
+   *   -A row or a BFS is heavy next to a single pair query, so both are
+   *    split down to one index per task even for short lists
    *
    * @param String array of nouns
    * @return String variable representing the outcacst noun
    */
   public String outcast( String[] nouns ) {
+    QueryMetrics metrics = wordnet.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
     int n = nouns.length;
+    ShortestCommonAncestor sca = wordnet.getSCA();
+    ShortestCommonAncestor.AncestorSet[] ancestors = new ShortestCommonAncestor.AncestorSet[n];
+    ParallelBatch.forEach( n, 1, i -> ancestors[i] = sca.ancestors( wordnet.idsOf( nouns[i] ) ) );
+    
+    int[][] distances = new int[n][n];
+    ParallelBatch.forEach( n, 1, i -> {
+      for ( int j = i + 1; j < n; j++ ) {
+        distances[i][j] = sca.ancestorAndLength( ancestors[i], ancestors[j] ).length();
+      }
+    } );
+    
     int outcastDistance = 0;
     int indexOfOutcast = 0;
-    
     for ( int i = 0; i < n; i++ ) {
       int d = 0;
       for ( int j = 0; j < n; j++ ) {
-        if ( i != j ) {
-          int l = wordnet.getSCA().length( wordnet.synsetIDs( nouns[i] ), wordnet.synsetIDs( nouns[j] ) );
-          d += l;
-        }
+        d += i < j ? distances[i][j] : distances[j][i];
       }
       if ( d > outcastDistance ) {
         outcastDistance = d;
         indexOfOutcast = i;
       }
     }
+    if ( start != 0 ) metrics.record( "outcast", System.nanoTime() - start );
     return nouns[indexOfOutcast];
   }
   
+  /* Batch version of outcast for scoring many noun lists in one call
+   *  -The lists are spread across cores with fork/join
+   * 
+   * @param array of String arrays of nouns
+   * @return String array where element i is the outcast of lists[i]
+   */
+  public String[] outcast( String[][] lists ) {
+    String[] outcasts = new String[lists.length];
+    ParallelBatch.forEach( lists.length, i -> outcasts[i] = outcast( lists[i] ) );
+    return outcasts;
+  }
+  
   //Test Driver
   public static void main( String[] args ) {
     WordNet wn = new WordNet( "synsets.txt", "hypernyms.txt" );
@@ -0,0 +1,73 @@
+/******************************************************************************
+ * Compilation:  javac ParallelBatch.java
+ * ----------------------------------------------------------------------------
+ * Runs a loop body for every index of a batch, splitting the range into
+ * halves with fork/join until the pieces are small enough to run directly.
+ * The piece size ("grain") defaults to one suited to cheap bodies such as a
+ * single pair query; heavy bodies should pass a smaller one.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+
+public class ParallelBatch {
+  
+  // Default grain: pieces at or below this many indices are not split
+  private static final int THRESHOLD = 64;
+  
+  private ParallelBatch() { }
+  
+  /* Method for calling body.accept( i ) for every i in 0 .. n-1 on the common
+   * fork/join pool (the calling thread joins in)
+   *  -Exceptions thrown by the body are rethrown to the caller
+   * 
+   * @param int variable for the batch size and the loop body
+   */
+  public static void forEach( int n, IntConsumer body ) {
+    forEach( n, THRESHOLD, body );
+  }
+  
+  /* Overloaded method taking the grain, i.e. the amount of indices a piece
+   * is split down to (1 gives every index its own task, for bodies that are
+   * expensive enough to be worth it even in small batches)
+   *  -Throws "IllegalArgumentException" if the grain is not positive
+   * 
+   * @param int variables for the batch size and the grain, and the loop body
+   */
+  public static void forEach( int n, int grain, IntConsumer body ) {
+    if ( grain <= 0 ) throw new IllegalArgumentException( "grain must be positive" );
+    if ( n <= grain ) {
+      for ( int i = 0; i < n; i++ ) body.accept( i );
+      return;
+    }
+    ForkJoinPool.commonPool().invoke( new Range( body, grain, 0, n ) );
+  }
+  
+  private static class Range extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final IntConsumer body;
+    private final int grain;
+    private final int lo;
+    private final int hi;
+    
+    Range( IntConsumer body, int grain, int lo, int hi ) {
+      this.body = body;
+      this.grain = grain;
+      this.lo = lo;
+      this.hi = hi;
+    }
+    
+    @Override
+    protected void compute() {
+      if ( hi - lo <= grain ) {
+        for ( int i = lo; i < hi; i++ ) body.accept( i );
+        return;
+      }
+      int mid = ( lo + hi ) >>> 1;
+      invokeAll( new Range( body, grain, lo, mid ), new Range( body, grain, mid, hi ) );
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/******************************************************************************
+ * Compilation:  javac QueryCache.java
+ * Dependencies: ShortestCommonAncestor.java
+ * ----------------------------------------------------------------------------
+ * Size-bounded, thread-safe cache of shortest common ancestor results keyed
+ * on the unordered pair of synset id sets of a query, so that (a, b) and
+ * (b, a) share one entry. Entries are spread over lock-striped segments that
+ * each evict their least recently used entry when full. When the graph
+ * changes, invalidate drops only the entries that contain an affected synset
+ * and bumps a generation counter so results computed on the old graph are
+ * not stored afterwards.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+
+public class QueryCache {
+  
+  private final Segment[] segments;
+  private final int capacity;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final AtomicLong generation = new AtomicLong();
+  
+  /* Constructor for QueryCache object
+   *  -Throws "IllegalArgumentException" if capacity is not positive
+   * 
+   * @param int variable representing the maximum amount of entries
+   */
+  public QueryCache( int capacity ) {
+    if ( capacity <= 0 ) throw new IllegalArgumentException( "cache capacity must be positive" );
+    this.capacity = capacity;
+    int count = 1;
+    while ( count < 16 && 2 * count <= capacity ) count <<= 1;
+    segments = new Segment[count];
+    for ( int i = 0; i < count; i++ ) {
+      segments[i] = new Segment( capacity / count + ( i < capacity % count ? 1 : 0 ) );
+    }
+  }
+  
+  /* Method for looking up the result cached for a pair of synset id sets
+   * 
+   * @param 2 int arrays of synset ids (in either order)
+   * @return Result object, or null if the pair is not cached
+   */
+  public ShortestCommonAncestor.Result get( int[] subsetA, int[] subsetB ) {
+    Key key = new Key( subsetA, subsetB );
+    ShortestCommonAncestor.Result result = segmentFor( key ).get( key );
+    if ( result == null ) misses.increment();
+    else hits.increment();
+    return result;
+  }
+  
+  /* Method for caching the result of a pair of synset id sets (evicting the
+   * least recently used entry of its segment if the segment is full)
+   * 
+   * @param 2 int arrays of synset ids (not copied, so they must not be 
+   *        modified afterwards) and the Result object for them
+   */
+  public void put( int[] subsetA, int[] subsetB, ShortestCommonAncestor.Result result ) {
+    Key key = new Key( subsetA, subsetB );
+    segmentFor( key ).put( key, result );
+  }
+  
+  /* Same as above, but the result is dropped if the cache was invalidated
+   * after "generation" was read (i.e. it may have been computed on a graph
+   * that has changed since)
+   * 
+   * @param 2 int arrays of synset ids, the Result object for them and the 
+   *        generation read before computing it
+   */
+  public void put( int[] subsetA, int[] subsetB, ShortestCommonAncestor.Result result, long generation ) {
+    Key key = new Key( subsetA, subsetB );
+    Segment segment = segmentFor( key );
+    synchronized ( segment ) {
+      if ( generation == this.generation.get() ) segment.put( key, result );
+    }
+  }
+  
+  //Returns the current generation (bumped by every invalidate)
+  public long generation() {
+    return generation.get();
+  }
+  
+  /* Method for removing the entries whose synset id sets contain a synset
+   * that "affected" accepts
+   * 
+   * @param IntPredicate over synset ids
+   * @return int variable representing the amount of entries removed
+   */
+  public int invalidate( IntPredicate affected ) {
+    generation.incrementAndGet();
+    int removed = 0;
+    for ( Segment segment : segments ) {
+      synchronized ( segment ) {
+        Iterator<Key> keys = segment.keySet().iterator();
+        while ( keys.hasNext() ) {
+          if ( keys.next().contains( affected ) ) {
+            keys.remove();
+            removed++;
+          }
+        }
+      }
+    }
+    return removed;
+  }
+  
+  //Removes every entry (the counters are kept)
+  public void clear() {
+    for ( Segment segment : segments ) {
+      synchronized ( segment ) {
+        segment.clear();
+      }
+    }
+  }
+  
+  //Returns the amount of cached entries
+  public int size() {
+    int size = 0;
+    for ( Segment segment : segments ) {
+      synchronized ( segment ) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+  
+  public int capacity() {
+    return capacity;
+  }
+  
+  //Counters for lookups that found an entry, lookups that did not, and 
+  //entries pushed out to make room
+  public long hits() {
+    return hits.sum();
+  }
+  
+  public long misses() {
+    return misses.sum();
+  }
+  
+  public long evictions() {
+    return evictions.sum();
+  }
+  
+  @Override
+  public String toString() {
+    return "QueryCache[size=" + size() + ", capacity=" + capacity + ", hits=" + hits() 
+      + ", misses=" + misses() + ", evictions=" + evictions() + "]";
+  }
+  
+  private Segment segmentFor( Key key ) {
+    int h = key.hashCode();
+    return segments[( h ^ ( h >>> 16 ) ) & ( segments.length - 1 )];
+  }
+  
+  // Access-ordered map that drops its eldest entry once it grows past its
+  // share of the capacity
+  private class Segment extends LinkedHashMap<Key, ShortestCommonAncestor.Result> {
+    private static final long serialVersionUID = 1L;
+    private final int maxSize;
+    
+    Segment( int maxSize ) {
+      super( 16, 0.75f, true );
+      this.maxSize = maxSize;
+    }
+    
+    @Override
+    public synchronized ShortestCommonAncestor.Result get( Object key ) {
+      return super.get( key );
+    }
+    
+    @Override
+    public synchronized ShortestCommonAncestor.Result put( Key key, ShortestCommonAncestor.Result value ) {
+      return super.put( key, value );
+    }
+    
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<Key, ShortestCommonAncestor.Result> eldest ) {
+      if ( size() <= maxSize ) return false;
+      evictions.increment();
+      return true;
+    }
+  }
+  
+  // Unordered pair of synset id sets: the smaller array (lexicographically)
+  // is always stored first so both orders build equal keys
+  private static class Key {
+    private final int[] first;
+    private final int[] second;
+    private final int hash;
+    
+    Key( int[] subsetA, int[] subsetB ) {
+      if ( compare( subsetA, subsetB ) <= 0 ) {
+        first = subsetA;
+        second = subsetB;
+      }
+      else {
+        first = subsetB;
+        second = subsetA;
+      }
+      hash = 31 * Arrays.hashCode( first ) + Arrays.hashCode( second );
+    }
+    
+    // True if either set holds an id that "affected" accepts
+    boolean contains( IntPredicate affected ) {
+      for ( int id : first ) {
+        if ( affected.test( id ) ) return true;
+      }
+      for ( int id : second ) {
+        if ( affected.test( id ) ) return true;
+      }
+      return false;
+    }
+    
+    private static int compare( int[] a, int[] b ) {
+      for ( int i = 0; i < a.length && i < b.length; i++ ) {
+        if ( a[i] != b[i] ) return a[i] < b[i] ? -1 : 1;
+      }
+      return a.length - b.length;
+    }
+    
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+    
+    @Override
+    public boolean equals( Object other ) {
+      if ( !( other instanceof Key ) ) return false;
+      Key that = ( Key ) other;
+      return hash == that.hash && Arrays.equals( first, that.first ) && Arrays.equals( second, that.second );
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/******************************************************************************
+ * Compilation:  javac QueryMetrics.java
+ * Dependencies: QueryMetricsMXBean.java, SlowQueryEvent.java
+ * ----------------------------------------------------------------------------
+ * Low-overhead instrumentation for ShortestCommonAncestor and WordNet:
+ *   -a latency histogram per operation ("search", "distance", "sca", ...)
+ *   -the vertices visited and edges scanned by every search, and the sizes
+ *    of the synset sets that were searched
+ *   -the time spent in each phase of loading a WordNet
+ *   -an optional Flight Recorder event (SlowQueryEvent) for every query at 
+ *    or above a latency threshold
+ * Metrics start disabled; while disabled the only cost on the query path is
+ * reading one volatile boolean. Histograms have one bucket per power of 2 and
+ * are updated with atomic increments, so recording never takes a lock. The
+ * numbers can be read from this object or over JMX (see registerMBean).
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+
+public class QueryMetrics implements QueryMetricsMXBean {
+  
+  public static final String SEARCH = "search";
+  
+  private volatile boolean enabled;
+  private volatile long slowQueryNanos = Long.MAX_VALUE;
+  
+  private final ConcurrentHashMap<String, Histogram> latencies = new ConcurrentHashMap<String, Histogram>();
+  private final Histogram visited = new Histogram();
+  private final Histogram setSizes = new Histogram();
+  private final LongAdder edgesScanned = new LongAdder();
+  private final ConcurrentHashMap<String, Long> loadPhases = new ConcurrentHashMap<String, Long>();
+  
+  //Returns whether queries are being recorded (read on every query)
+  public boolean isEnabled() {
+    return enabled;
+  }
+  
+  public void setEnabled( boolean enabled ) {
+    this.enabled = enabled;
+  }
+  
+  /* Method for setting the latency at which a query is reported as a
+   * SlowQueryEvent to Flight Recorder (Long.MAX_VALUE, the default, never)
+   * 
+   * @param long variable representing the threshold in nanoseconds
+   */
+  public void setSlowQueryThresholdNanos( long nanos ) {
+    if ( nanos < 0 ) throw new IllegalArgumentException( "threshold must not be negative" );
+    slowQueryNanos = nanos;
+  }
+  
+  public long getSlowQueryThresholdMicros() {
+    return slowQueryNanos == Long.MAX_VALUE ? Long.MAX_VALUE : slowQueryNanos / 1000;
+  }
+  
+  public void setSlowQueryThresholdMicros( long micros ) {
+    setSlowQueryThresholdNanos( micros >= Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : 1000 * micros );
+  }
+  
+  /* Method for recording one search of a ShortestCommonAncestor
+   *  -Only called while enabled
+   * 
+   * @param latency in nanoseconds, BFS work done and the sizes of the two
+   *        sets of sources
+   */
+  public void recordSearch( long nanos, long verticesVisited, long edges, int sizeA, int sizeB ) {
+    recordSearch( nanos, verticesVisited, edges, sizeA, sizeB, true );
+  }
+  
+  /* Overloaded method for a one-sided search (a single set of sources, 
+   * e.g. ShortestCommonAncestor.ancestors), which only has one set size
+   *  -Slow query events report its set size B as 0
+   * 
+   * @param latency in nanoseconds, BFS work done and the size of the set of
+   *        sources
+   */
+  public void recordSearch( long nanos, long verticesVisited, long edges, int size ) {
+    recordSearch( nanos, verticesVisited, edges, size, 0, false );
+  }
+  
+  private void recordSearch( long nanos, long verticesVisited, long edges, int sizeA, int sizeB, boolean twoSided ) {
+    histogram( SEARCH ).record( nanos );
+    visited.record( verticesVisited );
+    edgesScanned.add( edges );
+    setSizes.record( sizeA );
+    if ( twoSided ) setSizes.record( sizeB );
+    if ( nanos >= slowQueryNanos ) {
+      SlowQueryEvent event = new SlowQueryEvent();
+      if ( event.isEnabled() ) {
+        event.operation = SEARCH;
+        event.latency = nanos;
+        event.verticesVisited = verticesVisited;
+        event.edgesScanned = edges;
+        event.sizeA = sizeA;
+        event.sizeB = sizeB;
+        event.commit();
+      }
+    }
+  }
+  
+  /* Method for recording the latency of any other operation
+   *  -Only called while enabled
+   * 
+   * @param String representing the operation and the latency in nanoseconds
+   */
+  public void record( String operation, long nanos ) {
+    histogram( operation ).record( nanos );
+    if ( nanos >= slowQueryNanos ) {
+      SlowQueryEvent event = new SlowQueryEvent();
+      if ( event.isEnabled() ) {
+        event.operation = operation;
+        event.latency = nanos;
+        event.commit();
+      }
+    }
+  }
+  
+  // Load phases are recorded whether or not metrics are enabled since they 
+  // only happen once
+  public void recordLoadPhase( String phase, long nanos ) {
+    loadPhases.merge( phase, nanos, Long::sum );
+  }
+  
+  private Histogram histogram( String operation ) {
+    Histogram histogram = latencies.get( operation );
+    if ( histogram == null ) histogram = latencies.computeIfAbsent( operation, op -> new Histogram() );
+    return histogram;
+  }
+  
+  //Returns the latency histogram of an operation (null if never recorded)
+  public Histogram latency( String operation ) {
+    return latencies.get( operation );
+  }
+  
+  //Returns the histogram of vertices visited per search
+  public Histogram verticesVisited() {
+    return visited;
+  }
+  
+  //Returns the histogram of synset set sizes per search side
+  public Histogram synsetSetSizes() {
+    return setSizes;
+  }
+  
+  public Map<String, Long> getCounts() {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for ( Map.Entry<String, Histogram> e : latencies.entrySet() ) counts.put( e.getKey(), e.getValue().count() );
+    return counts;
+  }
+  
+  public Map<String, Double> getMeanLatencyMicros() {
+    Map<String, Double> means = new TreeMap<String, Double>();
+    for ( Map.Entry<String, Histogram> e : latencies.entrySet() ) means.put( e.getKey(), e.getValue().mean() / 1000 );
+    return means;
+  }
+  
+  public Map<String, Long> getP50LatencyMicros() {
+    return percentileMicros( 0.5 );
+  }
+  
+  public Map<String, Long> getP99LatencyMicros() {
+    return percentileMicros( 0.99 );
+  }
+  
+  public Map<String, Long> getMaxLatencyMicros() {
+    return percentileMicros( 1.0 );
+  }
+  
+  private Map<String, Long> percentileMicros( double p ) {
+    Map<String, Long> values = new TreeMap<String, Long>();
+    for ( Map.Entry<String, Histogram> e : latencies.entrySet() ) values.put( e.getKey(), e.getValue().percentile( p ) / 1000 );
+    return values;
+  }
+  
+  public long getSearches() {
+    return visited.count();
+  }
+  
+  public long getVerticesVisited() {
+    return visited.sum();
+  }
+  
+  public long getEdgesScanned() {
+    return edgesScanned.sum();
+  }
+  
+  public long getP99VerticesVisited() {
+    return visited.percentile( 0.99 );
+  }
+  
+  public double getMeanSynsetSetSize() {
+    return setSizes.mean();
+  }
+  
+  public long getMaxSynsetSetSize() {
+    return setSizes.percentile( 1.0 );
+  }
+  
+  public Map<String, Double> getLoadPhaseMillis() {
+    Map<String, Double> phases = new TreeMap<String, Double>();
+    for ( Map.Entry<String, Long> e : loadPhases.entrySet() ) phases.put( e.getKey(), e.getValue() / 1e6 );
+    return phases;
+  }
+  
+  //Clears the query metrics (load phase timings are kept)
+  public void reset() {
+    latencies.clear();
+    visited.reset();
+    setSizes.reset();
+    edgesScanned.reset();
+  }
+  
+  /* Method for registering these metrics with the platform MBean server
+   * under "WordNet:type=QueryMetrics,name=<name>"
+   *  -Throws "IllegalStateException" if the name is already registered
+   * 
+   * @param String representing the name of this instance
+   * @return ObjectName the metrics were registered under
+   */
+  public ObjectName registerMBean( String name ) {
+    try {
+      ObjectName objectName = new ObjectName( "WordNet:type=QueryMetrics,name=" + ObjectName.quote( name ) );
+      ManagementFactory.getPlatformMBeanServer().registerMBean( this, objectName );
+      return objectName;
+    }
+    catch ( JMException e ) {
+      throw new IllegalStateException( "Could not register metrics " + name, e );
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return "QueryMetrics[counts=" + getCounts() + ", meanMicros=" + getMeanLatencyMicros() 
+      + ", p99Micros=" + getP99LatencyMicros() + ", searches=" + getSearches() 
+      + ", verticesVisited=" + getVerticesVisited() + ", edgesScanned=" + getEdgesScanned() 
+      + ", loadPhaseMillis=" + getLoadPhaseMillis() + "]";
+  }
+  
+  /* Lock-free histogram of non-negative values with one bucket per power of
+   * 2 (bucket 'b' holds values whose highest set bit is b - 1)
+   */
+  public static class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray( 65 );
+    private final LongAdder sum = new LongAdder();
+    
+    public void record( long value ) {
+      buckets.incrementAndGet( 64 - Long.numberOfLeadingZeros( Math.max( 0, value ) ) );
+      sum.add( value );
+    }
+    
+    public long count() {
+      long count = 0;
+      for ( int b = 0; b < buckets.length(); b++ ) count += buckets.get( b );
+      return count;
+    }
+    
+    public long sum() {
+      return sum.sum();
+    }
+    
+    public double mean() {
+      long count = count();
+      return count == 0 ? 0 : ( double ) sum() / count;
+    }
+    
+    /* Method for estimating a percentile
+     * 
+     * @param double variable between 0 and 1
+     * @return upper bound of the bucket holding the percentile (0 if empty)
+     */
+    public long percentile( double p ) {
+      long count = count();
+      if ( count == 0 ) return 0;
+      long rank = Math.max( 1, ( long ) Math.ceil( p * count ) );
+      long seen = 0;
+      for ( int b = 0; b < buckets.length(); b++ ) {
+        seen += buckets.get( b );
+        if ( seen >= rank ) return b == 0 ? 0 : b >= 64 ? Long.MAX_VALUE : ( 1L << b ) - 1;
+      }
+      return Long.MAX_VALUE;
+    }
+    
+    void reset() {
+      for ( int b = 0; b < buckets.length(); b++ ) buckets.set( b, 0 );
+      sum.reset();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/******************************************************************************
+ * Compilation:  javac QueryMetricsMXBean.java
+ * ----------------------------------------------------------------------------
+ * JMX view of QueryMetrics (registered with QueryMetrics.registerMBean).
+ * Latencies are in microseconds and percentiles are upper bounds of the
+ * power-of-2 histogram bucket they fall in.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.util.Map;
+
+
+public interface QueryMetricsMXBean {
+  
+  boolean isEnabled();
+  
+  void setEnabled( boolean enabled );
+  
+  long getSlowQueryThresholdMicros();
+  
+  void setSlowQueryThresholdMicros( long micros );
+  
+  // Per operation ("search", "distance", "sca", ...) 
+  Map<String, Long> getCounts();
+  
+  Map<String, Double> getMeanLatencyMicros();
+  
+  Map<String, Long> getP50LatencyMicros();
+  
+  Map<String, Long> getP99LatencyMicros();
+  
+  Map<String, Long> getMaxLatencyMicros();
+  
+  // BFS work over all searches
+  long getSearches();
+  
+  long getVerticesVisited();
+  
+  long getEdgesScanned();
+  
+  long getP99VerticesVisited();
+  
+  double getMeanSynsetSetSize();
+  
+  long getMaxSynsetSetSize();
+  
+  // Time spent in each load phase in milliseconds
+  Map<String, Double> getLoadPhaseMillis();
+  
+  void reset();
+}
@@ -6,6 +6,12 @@
  * paths for the given points using Breadth-First Search and determines the
  * shortest ancestral path. Using the shortest ancestral path, it then finds 
  * the shortest common ancestor on that path.
+ * The graph is never modified in place (updates swap in a changed copy) and
+ * the BFS scratch state is kept per thread, so one object can serve queries
+ * from many threads while it is being updated.
+ * Searches run on a HypernymGraph whose vertices are renumbered for memory
+ * locality; vertex ids are translated on the way in and out, so callers
+ * only ever see the original ids.
  * 
  * Author:@Julian Ceja, @Dakota Jackson
  * ***************************************************************************/
@@ -13,125 +19,392 @@
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.Digraph;
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.LinearProbingHashST;
 import edu.princeton.cs.algs4.Queue;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 
 public class ShortestCommonAncestor {
   
-  Digraph graph;
-  private int root;
+  /* Strategies for searching the two sides of a query
+   *  -FULL runs both searches all the way to the root and then compares them
+   *  -BIDIRECTIONAL expands both sides one level at a time and stops as soon
+   *   as no undiscovered ancestor can beat the best one found so far
+   *  -LABELS merges precomputed ancestor/distance labels (see DistanceLabels)
+   *   without traversing the graph
+   */
+  public enum SearchMode { FULL, BIDIRECTIONAL, LABELS }
+  
+  /* Similarity measures derived from a shortest common ancestor, its 
+   * ancestral path length 'len' and depths counted from 1 at the root
+   *  -PATH: 1 / ( len + 1 )
+   *  -WU_PALMER: 2 * d / ( len + 2 * d ) where 'd' is the ancestor's depth,
+   *   i.e. twice the depth of the ancestor over the depths of both sides
+   *   measured through it
+   *  -LEACOCK_CHODOROW: -ln( ( len + 1 ) / ( 2 * D ) ) where 'D' is the 
+   *   depth of the deepest vertex
+   */
+  public enum Similarity { PATH, WU_PALMER, LEACOCK_CHODOROW }
+  
+  // Renumbered compressed-sparse-row copy of the Digraph (see HypernymGraph)
+  private volatile HypernymGraph graph;
+  private volatile int root;
+  private volatile SearchMode mode = SearchMode.BIDIRECTIONAL;
+  private volatile DistanceLabels labels;
+  private volatile AncestorIntervals intervals;
+  private final QueryMetrics metrics = new QueryMetrics();
+  
+  // Reusable BFS scratch state for the two sides of a query; every thread 
+  // gets its own pair, so any number of threads can query one graph at once
+  private final ThreadLocal<BFSPath[]> scratch;
   
   
   //Constructor for ShortestCommonAncestor object
   // -Throws 'NullPointerException" if null inputted Digraph
+  // -Copies the adjacency lists into primitive arrays once so queries never
+  //  touch the boxed Bag iterators again
   public ShortestCommonAncestor( Digraph G ) {
+    this( HypernymGraph.build( offsetsOf( G ), targetsOf( G ) ) );
+  }
+  
+  /* Constructor for a graph that is already in compressed-sparse-row form
+   *  (e.g. built by WordNetLoader or read from a snapshot)
+   * 
+   * @param HypernymGraph to search
+   */
+  ShortestCommonAncestor( HypernymGraph graph ) {
+    this.graph = graph;
+    scratch = ThreadLocal.withInitial( () -> new BFSPath[] { new BFSPath(), new BFSPath() } );
+  }
+  
+  // Offsets of each vertex's hypernyms in the array built by targetsOf
+  private static int[] offsetsOf( Digraph G ) {
     if ( G == null ) throw new NullPointerException();
-    
-    graph = G;
+    int[] offsets = new int[G.V() + 1];
+    for ( int v = 0; v < G.V(); v++ ) {
+      offsets[v + 1] = offsets[v] + G.outdegree( v );
+    }
+    return offsets;
+  }
+  
+  // Hypernyms of every vertex, back to back in vertex order
+  private static int[] targetsOf( Digraph G ) {
+    int[] targets = new int[G.E()];
+    for ( int v = 0, k = 0; v < G.V(); v++ ) {
+      for ( int w : G.adj( v ) ) {
+        targets[k++] = w;
+      }
+    }
+    return targets;
   }
   
   /* Method giving the associated length for the shortest common ancestral path
-   *   -Method creates 2 BFSPath objects 
-   *    -1st object gets the path from 'v' to root
-   *    -2nd object gets path from 'w' to any of the vertices that were visited
-   *     on the pathV
-   *   -Shortetst Common Ancestor is whatever vertex is the stopVertex from pathW
-   *  -length is then determined from the distances from paths to sca
    * 
    * @param 2 int variables 'v' and 'w' representing 2 vertices on Digraph
    * @return int variable representing the associated length
    */ 
   public int length( int v, int w ){
-    BFSPath pathV = new BFSPath( graph, v );
-    BFSPath pathW = new BFSPath( graph, w, pathV.getVisitedVertices() );
-    int sca = pathW.getStopVertex();
-    return pathV.distTo( sca ) + pathW.distTo( sca );
+    return ancestorAndLength( v, w ).length();
   }
   
   /* Method for returning the shortest common ancestor between 2 vertices
-   *  -creates 2 BFSPath objects for each path
-   *  -calls on the "getStopVertex" method in the BFSPath class from pathW
    * 
    * @param 2 int variables 'v' and 'w' representing 2 vertices on Digraph
    * @return int variable representing the vertex for Shortest Common Ancestor
    */
   public int ancestor( int v, int w ) {
-    BFSPath pathV = new BFSPath( graph, v );
-    BFSPath pathW = new BFSPath( graph, w, pathV.getVisitedVertices() );
-    return pathW.getStopVertex();
+    return ancestorAndLength( v, w ).ancestor();
+  }
+  
+  /* Method for finding both the Shortest Common Ancestor of 2 vertices and
+   * the length of its ancestral path with a single pair of searches
+   * 
+   * @param 2 int variables 'v' and 'w' representing 2 vertices on Digraph
+   * @return Result object holding the ancestor and the length
+   */
+  public Result ancestorAndLength( int v, int w ) {
+    validateVertex( v );
+    validateVertex( w );
+    BFSPath[] paths = scratch.get();
+    BFSPath pathA = paths[0];
+    BFSPath pathB = paths[1];
+    HypernymGraph g = graph;
+    pathA.start( g );
+    pathA.addSource( v );
+    pathB.start( g );
+    pathB.addSource( w );
+    return search( pathA, pathB );
   }
   
   /* Overloaded method for returning the length of path containing Shortest 
    * Common Ancestor between 2 lists of Vertices 
-   *  -creates 2 BFSPath objects for each path
-   *  -creates a queue that stores the common ancestors from both sets
-   *  -compares the paths of all the ancestors and returns the length
-   *   of the shortest path
    * 
    * @param 2 lists of int variables (representing vertices)
    * @return int variable representing the length of the shortest common
    *         ancestral path
    */
   public int length( Iterable<Integer> subsetA, Iterable<Integer> subsetB ) {
-    BFSPath pathA = new BFSPath( graph, subsetA );
-    BFSPath pathB = new BFSPath( graph, subsetB );
-    
-    Queue<Integer> q = new Queue<Integer>();
-    for ( int i : pathA.getVisitedVertices() ) {
-      for ( int j : pathB.getVisitedVertices() ) {
-        if ( i == j ) {
-          q.enqueue( i );
-          break;
-        }
-      }
-    }
-    int sca = root;
-    int scaPathLength = graph.V();
-    for ( int i : q ) {
-      int pathLength = pathA.distTo( i ) + pathB.distTo( i );
-      if ( pathLength < scaPathLength ) {
-        sca = i;
-        scaPathLength = pathLength;
-      }
-    }
-    return scaPathLength;
+    return ancestorAndLength( subsetA, subsetB ).length();
   }
   
   /* Overloaded method for finding the Shortest Common Ancestor
-   *  -creates 2 BFSPath objects for each path
-   *  -creates a queue that stores the common ancestors from both sets
-   *  -compares the paths of all the ancestors and returns the shortest
-   *   common ancestor
    * 
    * @param 2 lists of int variables (representing vertices)
    * @return int variable representing the vertex for Shortest Common Ancestor 
    */
   public int ancestor( Iterable<Integer> subsetA, Iterable<Integer> subsetB ) {
-    BFSPath pathA = new BFSPath( graph, subsetA );
-    BFSPath pathB = new BFSPath( graph, subsetB );
-    
-    Queue<Integer> q = new Queue<Integer>();
-    for ( int i : pathA.getVisitedVertices() ) {
-      for ( int j : pathB.getVisitedVertices() ) {
-        if ( i == j ) {
-          q.enqueue( i );
-          break;
+    return ancestorAndLength( subsetA, subsetB ).ancestor();
+  }
+  
+  /* Method for finding both the Shortest Common Ancestor and the length of 
+   * its ancestral path with a single pair of searches
+   *  -Callers that need both values should use this instead of calling
+   *   ancestor and length separately (which would search twice)
+   * 
+   * @param 2 lists of int variables (representing vertices)
+   * @return Result object holding the ancestor and the length
+   */
+  public Result ancestorAndLength( Iterable<Integer> subsetA, Iterable<Integer> subsetB ) {
+    BFSPath[] paths = scratch.get();
+    BFSPath pathA = paths[0];
+    BFSPath pathB = paths[1];
+    HypernymGraph g = graph;
+    pathA.start( g );
+    for ( int v : subsetA ) pathA.addSource( v );
+    pathB.start( g );
+    for ( int w : subsetB ) pathB.addSource( w );
+    return search( pathA, pathB );
+  }
+  
+  /* Overloads of length, ancestor and ancestorAndLength for sets of vertices
+   * given as int arrays (e.g. the synset ids of a noun), which avoids boxing
+   * 
+   * @param 2 int arrays representing sets of vertices
+   */
+  public int length( int[] subsetA, int[] subsetB ) {
+    return ancestorAndLength( subsetA, subsetB ).length();
+  }
+  
+  public int ancestor( int[] subsetA, int[] subsetB ) {
+    return ancestorAndLength( subsetA, subsetB ).ancestor();
+  }
+  
+  public Result ancestorAndLength( int[] subsetA, int[] subsetB ) {
+    BFSPath[] paths = scratch.get();
+    BFSPath pathA = paths[0];
+    BFSPath pathB = paths[1];
+    HypernymGraph g = graph;
+    pathA.start( g );
+    for ( int v : subsetA ) pathA.addSource( v );
+    pathB.start( g );
+    for ( int w : subsetB ) pathB.addSource( w );
+    return search( pathA, pathB );
+  }
+  
+  /* Methods for finding the length of the shortest ancestral path only if 
+   * it is no longer than "maxLength"
+   *  -Runs the bidirectional search with a budget: neither side is expanded
+   *   past depth "maxLength", and the search stops as soon as no ancestral
+   *   path within the budget can be left undiscovered, so far apart pairs
+   *   never search up to the root
+   *  -Throws "IllegalArgumentException" if "maxLength" is negative
+   * 
+   * @param 2 int variables or 2 int arrays representing vertices and the 
+   *        maximum length of interest
+   * @return int variable representing the length, or -1 if it is longer
+   *         than "maxLength"
+   */
+  public int lengthWithin( int v, int w, int maxLength ) {
+    return lengthWithin( new int[] { v }, new int[] { w }, maxLength );
+  }
+  
+  public int lengthWithin( int[] subsetA, int[] subsetB, int maxLength ) {
+    Result result = ancestorAndLengthWithin( subsetA, subsetB, maxLength );
+    return result == null ? -1 : result.length();
+  }
+  
+  /* Method behind lengthWithin that also keeps the ancestor
+   * 
+   * @param 2 int arrays representing sets of vertices and the maximum length
+   * @return Result object holding the ancestor and the length, or null if
+   *         the length is more than "maxLength"
+   */
+  public Result ancestorAndLengthWithin( int[] subsetA, int[] subsetB, int maxLength ) {
+    if ( maxLength < 0 ) throw new IllegalArgumentException( "maxLength must not be negative" );
+    BFSPath[] paths = scratch.get();
+    BFSPath pathA = paths[0];
+    BFSPath pathB = paths[1];
+    HypernymGraph g = graph;
+    pathA.start( g );
+    for ( int v : subsetA ) pathA.addSource( v );
+    pathB.start( g );
+    for ( int w : subsetB ) pathB.addSource( w );
+    Result result = search( pathA, pathB, maxLength );
+    return result.length() <= maxLength ? result : null;
+  }
+  
+  /* Methods for scoring the similarity of 2 vertices or 2 sets of vertices
+   * (the closest pair of their members) with a single pair of searches
+   * 
+   * @param Similarity measure and 2 vertices or 2 int arrays of vertices
+   * @return double value of the measure
+   */
+  public double similarity( Similarity measure, int v, int w ) {
+    return similarity( measure, ancestorAndLength( v, w ) );
+  }
+  
+  public double similarity( Similarity measure, int[] subsetA, int[] subsetB ) {
+    return similarity( measure, ancestorAndLength( subsetA, subsetB ) );
+  }
+  
+  /* Batch version of similarity for many pairs of vertices
+   *  -Pairs are spread across cores with fork/join
+   *  -Throws "IllegalArgumentException" if the arrays differ in length
+   * 
+   * @param Similarity measure and 2 int arrays where v[i] and w[i] form 
+   *        pair i
+   * @return double array where element i is the score of pair i
+   */
+  public double[] similarities( Similarity measure, int[] v, int[] w ) {
+    if ( measure == null ) throw new NullPointerException();
+    if ( v.length != w.length ) throw new IllegalArgumentException( "vertex arrays differ in length" );
+    double[] scores = new double[v.length];
+    ParallelBatch.forEach( v.length, i -> scores[i] = similarity( measure, ancestorAndLength( v[i], w[i] ) ) );
+    return scores;
+  }
+  
+  /* Method for turning a Result that was already computed into a score
+   *  -Depths are looked up in the precomputed depth array, so this does no
+   *   searching
+   * 
+   * @param Similarity measure and Result of ancestorAndLength
+   * @return double value of the measure
+   */
+  public double similarity( Similarity measure, Result result ) {
+    int len = result.length();
+    switch ( measure ) {
+      case PATH:
+        return 1.0 / ( len + 1 );
+      case WU_PALMER:
+        double d = depth( result.ancestor() ) + 1;
+        return 2 * d / ( len + 2 * d );
+      case LEACOCK_CHODOROW:
+        return -Math.log( ( len + 1 ) / ( 2.0 * ( graph.maxDepth() + 1 ) ) );
+      default:
+        throw new IllegalArgumentException( "unknown measure " + measure );
+    }
+  }
+  
+  //Returns the depth of vertex 'v' below the root (0 for the root itself)
+  public int depth( int v ) {
+    validateVertex( v );
+    HypernymGraph g = graph;
+    return g.depth( g.internal( v ) );
+  }
+  
+  //Returns the depth of the deepest vertex
+  public int maxDepth() {
+    return graph.maxDepth();
+  }
+  
+  /* Method for running one full BFS from a set of vertices and keeping the
+   * result, so that the same side can be paired with many others without
+   * searching it again (see ancestorAndLength( AncestorSet, AncestorSet ))
+   * 
+   * @param int array representing a set of vertices
+   * @return AncestorSet object holding every ancestor and its distance
+   */
+  public AncestorSet ancestors( int[] subset ) {
+    BFSPath path = scratch.get()[0];
+    path.start( graph );
+    for ( int v : subset ) path.addSource( v );
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    path.searchAll();
+    if ( start != 0 ) metrics.recordSearch( System.nanoTime() - start, path.visitedCount(), path.edgesScanned(), subset.length );
+    int[] vertices = new int[path.visitedCount()];
+    int[] distances = new int[vertices.length];
+    for ( int i = 0; i < vertices.length; i++ ) {
+      vertices[i] = path.visited( i );
+      distances[i] = path.distTo( vertices[i] );
+    }
+    return new AncestorSet( vertices, distances, path.graph().toOriginal() );
+  }
+  
+  /* Method for walking every vertex in order of its ancestral distance from
+   * a set of vertices (the length of the shortest path that goes up through
+   * hypernyms and then down through hyponyms)
+   *  -Both directions advance one level at a time: the vertices at distance
+   *   'd' are the ancestors at depth 'd' that were not reached yet plus the
+   *   unreached hyponyms of the vertices at distance 'd - 1'
+   *  -Stops as soon as the visitor returns false, so only the levels that
+   *   are needed are ever expanded
+   * 
+   * @param int array representing a set of vertices and the VertexVisitor
+   *        called for each vertex, in nondecreasing distance
+   */
+  public void nearest( int[] subset, VertexVisitor visitor ) {
+    BFSPath[] paths = scratch.get();
+    BFSPath up = paths[0];
+    BFSPath down = paths[1];
+    HypernymGraph g = graph;
+    up.start( g );
+    for ( int v : subset ) up.addSource( v );
+    down.start( g );
+    int[] revOffsets = g.revOffsets();
+    int[] revTargets = g.revTargets();
+    int upFrom = 0;
+    int downFrom = 0;
+    for ( int d = 0; ; d++ ) {
+      int downTo = down.visitedCount();
+      for ( int i = downFrom; i < downTo; i++ ) {
+        int x = down.visited( i );
+        for ( int k = revOffsets[x]; k < revOffsets[x + 1]; k++ ) {
+          if ( !down.hasPathTo( revTargets[k] ) ) down.offer( revTargets[k], d );
         }
       }
+      int upTo = up.visitedCount();
+      for ( int i = upFrom; i < upTo; i++ ) {
+        int x = up.visited( i );
+        if ( !down.hasPathTo( x ) ) down.offer( x, d );
+      }
+      // No new vertices at this distance and no ancestors left to climb
+      if ( down.visitedCount() == downTo && up.isExhausted() ) return;
+      for ( int i = downTo; i < down.visitedCount(); i++ ) {
+        if ( !visitor.visit( g.original( down.visited( i ) ), d ) ) return;
+      }
+      downFrom = downTo;
+      upFrom = upTo;
+      up.expandLevel();
     }
-    int sca = root;
-    int scaPathLength = graph.V();
-    for ( int i : q ) {
-      int pathLength = pathA.distTo( i ) + pathB.distTo( i );
-      if ( pathLength < scaPathLength ) {
-        sca = i;
-        scaPathLength = pathLength;
+  }
+  
+  /* Overload of ancestorAndLength for two sides that were already searched
+   *  -Folds A's ancestors into the marker arrays and scans B's against them,
+   *   which is linear in the two ancestor sets
+   * 
+   * @param 2 AncestorSet objects returned by ancestors
+   * @return Result object holding the ancestor and the length
+   */
+  public Result ancestorAndLength( AncestorSet setA, AncestorSet setB ) {
+    BFSPath pathA = scratch.get()[0];
+    pathA.start( graph );
+    for ( int i = 0; i < setA.size(); i++ ) {
+      pathA.offer( setA.vertices[i], setA.distance( i ) );
+    }
+    int sca = -1;
+    int best = Integer.MAX_VALUE;
+    for ( int j = 0; j < setB.size(); j++ ) {
+      int b = setB.vertices[j];
+      if ( pathA.hasPathTo( b ) ) {
+        int pathLength = pathA.distTo( b ) + setB.distance( j );
+        if ( pathLength < best ) {
+          sca = b;
+          best = pathLength;
+        }
       }
     }
-    return sca;
+    return toResult( pathA.graph(), sca, best );
   }
   
   /* Method for setting the root of the Digraph
@@ -142,171 +415,700 @@ public class ShortestCommonAncestor {
     this.root = root;
   }
   
-  //Created class for obtaining the path needed via BFS
-  private class BFSPath {
-    HashSet<Integer> visited;
-    //LinearProbingHashST<Integer, Integer> edgeTo;
-    LinearProbingHashST<Integer, Integer> distTo;
-    int stopVertex = root;
+  /* Method for choosing how the two sides of a query are searched
+   *  -Both modes return the true shortest ancestral path; BIDIRECTIONAL
+   *   (the default) visits fewer vertices for nearby pairs
+   * 
+   * @param SearchMode to use for subsequent queries
+   */
+  public void setSearchMode( SearchMode mode ) {
+    if ( mode == null ) throw new NullPointerException();
+    if ( mode == SearchMode.LABELS ) buildLabelIndex();
+    this.mode = mode;
+  }
+  
+  /* Method for building the distance label index (only done once)
+   *  -Used by the LABELS search mode, which builds it on demand (and 
+   *   rebuilds it after the graph has been updated)
+   *  -The returned object reports the build time and memory footprint
+   * 
+   * @return DistanceLabels object for this graph
+   */
+  public synchronized DistanceLabels buildLabelIndex() {
+    if ( labels == null || labels.graph() != graph ) labels = new DistanceLabels( graph );
+    return labels;
+  }
+  
+  /* Methods for finding the shortest ancestral path itself
+   *  -Runs the bidirectional search (whatever the search mode) with the 
+   *   vertices each side was discovered from, then walks back from the 
+   *   shortest common ancestor to both sides; only the path is copied out
+   * 
+   * @param 2 int variables or 2 int arrays representing sets of vertices
+   * @return int array of the vertices from a vertex of A up to the shortest
+   *         common ancestor and down to a vertex of B (empty if the two 
+   *         have no common ancestor)
+   */
+  public int[] ancestralPath( int v, int w ) {
+    return ancestralPath( new int[] { v }, new int[] { w } );
+  }
+  
+  public int[] ancestralPath( int[] subsetA, int[] subsetB ) {
+    BFSPath[] paths = scratch.get();
+    BFSPath pathA = paths[0];
+    BFSPath pathB = paths[1];
+    HypernymGraph g = graph;
+    pathA.start( g );
+    for ( int v : subsetA ) pathA.addSource( v );
+    pathB.start( g );
+    for ( int w : subsetB ) pathB.addSource( w );
+    Result result = lockstep( pathA, pathB, Integer.MAX_VALUE );
+    // The length only reaches the vertex count when the sides never met
+    if ( result.length() >= g.V() ) return new int[0];
     
-    /* Constructor for BFSPath object
-     *  -Uses 3 Data Structures:
-     *    -HashSet for keeping track of the vertices that have been visited
-     *    -Linear-Probing Hash Set for "edgeTo" instead of array representation
-     *    -Linear-Probing Hash Set for "distTo" instead of array representation
-     * 
-     * -It then calls the bfs method
-     * @param Digraph object and int variable representing source vertex
-     */
-    public BFSPath( Digraph graph, int source ) {
-      visited = new HashSet<Integer>();
-      //edgeTo = new LinearProbingHashST<Integer, Integer>();
-      distTo = new LinearProbingHashST<Integer, Integer>();
+    int sca = g.internal( result.ancestor() );
+    int[] path = new int[result.length() + 1];
+    int i = pathA.distTo( sca );
+    for ( int x = sca; x >= 0; x = pathA.edgeTo( x ) ) {
+      path[i--] = g.original( x );
+    }
+    i = pathA.distTo( sca ) + 1;
+    for ( int x = pathB.edgeTo( sca ); x >= 0; x = pathB.edgeTo( x ) ) {
+      path[i++] = g.original( x );
+    }
+    return path;
+  }
+  
+  /* Method for enumerating every hypernym path from a vertex up to a vertex
+   * without hypernyms (the root)
+   *  -Lazy: every iterator runs its own depth-first search with an explicit
+   *   stack and only copies out the path it is about to return, so a caller
+   *   that stops after a few paths never pays for the rest (a vertex deep 
+   *   in the hierarchy can have very many)
+   *  -Iterates over the graph as it was when the method was called
+   * 
+   * @param int variable representing a vertex
+   * @return Iterable of int arrays, each path starting at 'v' and ending 
+   *         at the root
+   */
+  public Iterable<int[]> rootPaths( int v ) {
+    validateVertex( v );
+    HypernymGraph g = graph;
+    int source = g.internal( v );
+    return () -> new Iterator<int[]>() {
+      private final int[] adjOffsets = g.offsets();
+      private final int[] adjTargets = g.targets();
+      // Vertices of the current path and the next hypernym to try for each
+      private int[] stack = { source };
+      private int[] position = { adjOffsets[source] };
+      private int top = 1;
+      private int[] next;
+      
+      public boolean hasNext() {
+        if ( next == null ) next = advance();
+        return next != null;
+      }
       
-      bfs( graph, source );
+      public int[] next() {
+        if ( !hasNext() ) throw new NoSuchElementException();
+        int[] path = next;
+        next = null;
+        return path;
+      }
+      
+      // Continues the DFS until the vertex on top of the stack is a root
+      private int[] advance() {
+        while ( top > 0 ) {
+          int u = stack[top - 1];
+          int k = position[top - 1];
+          if ( k == adjOffsets[u + 1] ) {
+            int[] path = null;
+            if ( adjOffsets[u] == adjOffsets[u + 1] ) {
+              path = new int[top];
+              for ( int i = 0; i < top; i++ ) path[i] = g.original( stack[i] );
+            }
+            top--;
+            if ( path != null ) return path;
+            continue;
+          }
+          position[top - 1]++;
+          if ( top == stack.length ) {
+            stack = Arrays.copyOf( stack, 2 * top );
+            position = Arrays.copyOf( position, 2 * top );
+          }
+          int w = adjTargets[k];
+          stack[top] = w;
+          position[top++] = adjOffsets[w];
+        }
+        return null;
+      }
+    };
+  }
+  
+  /* Method for building the ancestor interval index (only done once)
+   *  -Once built, isAncestor answers from it instead of searching, and it
+   *   is rebuilt on demand after the graph has been updated
+   *  -The returned object reports the build time and memory footprint
+   * 
+   * @return AncestorIntervals object for this graph
+   */
+  public synchronized AncestorIntervals buildAncestorIndex() {
+    if ( intervals == null || intervals.graph() != graph ) intervals = new AncestorIntervals( graph );
+    return intervals;
+  }
+  
+  /* Method for the ancestor interval index of the current graph
+   *  -Reads the index without taking the lock when it is already built for
+   *   this graph; only the first call (or one after an update that could
+   *   not patch it) goes through buildAncestorIndex
+   * 
+   * @return AncestorIntervals object for this graph
+   */
+  public AncestorIntervals ancestorIndex() {
+    AncestorIntervals index = intervals;
+    if ( index != null && index.graph() == graph ) return index;
+    return buildAncestorIndex();
+  }
+  
+  /* Methods for checking whether 'a' is an ancestor of 'v' (a vertex counts
+   * as its own ancestor), or whether any vertex of one set is an ancestor 
+   * of any vertex of another
+   *  -With the ancestor index built this is one interval probe per pair;
+   *   without it, a BFS up from the descendants that stops as soon as an 
+   *   ancestor is reached
+   * 
+   * @param 2 int variables or 2 int arrays representing the ancestors and
+   *        the descendants
+   * @return boolean value representing if the ancestor relation holds
+   */
+  public boolean isAncestor( int a, int v ) {
+    return isAncestor( new int[] { a }, new int[] { v } );
+  }
+  
+  public boolean isAncestor( int[] ancestors, int[] subset ) {
+    if ( ancestors.length == 0 || subset.length == 0 ) throw new IllegalArgumentException( "empty vertex set" );
+    for ( int a : ancestors ) validateVertex( a );
+    for ( int v : subset ) validateVertex( v );
+    HypernymGraph g = graph;
+    AncestorIntervals index = intervals;
+    if ( index != null && index.graph() != g ) index = buildAncestorIndex();
+    if ( index != null && index.graph() == g ) {
+      for ( int a : ancestors ) {
+        for ( int v : subset ) {
+          if ( index.isAncestor( g.internal( a ), g.internal( v ) ) ) return true;
+        }
+      }
+      return false;
     }
     
-    /* Overloaded constructor for BFSPath object
-     *  -Same Data Structures as normal constructor
-     *  -This allows an iterable list of sources to be used in forming path
-     *  -Calls on bfs method
-     * 
-     * @param Digraph object and iterable list of vertices "sources"
-     */
-    public BFSPath( Digraph graph, Iterable<Integer> sources ) {
-      visited = new HashSet<Integer>();
-      //edgeTo = new LinearProbingHashST<Integer, Integer>();
-      distTo = new LinearProbingHashST<Integer, Integer>();
-      
-      bfs( graph, sources );
+    // No index (or the graph changed while it was rebuilt): BFS that 
+    // checks every vertex as it is dequeued
+    BFSPath path = scratch.get()[0];
+    path.start( g );
+    for ( int v : subset ) path.addSource( v );
+    int[] adjOffsets = g.offsets();
+    int[] adjTargets = g.targets();
+    for ( int i = 0; i < path.visitedCount(); i++ ) {
+      int x = path.visited( i );
+      for ( int a : ancestors ) {
+        if ( g.internal( a ) == x ) return true;
+      }
+      for ( int k = adjOffsets[x]; k < adjOffsets[x + 1]; k++ ) {
+        path.offer( adjTargets[k], 0 );
+      }
     }
+    return false;
+  }
+  
+  /* Method for adding a vertex with the given hypernyms
+   *  -Copy-on-write: queries already running keep searching the graph they
+   *   started with, later ones see the new vertex
+   *  -A new vertex has no descendants, so it cannot close a cycle and no
+   *   existing ancestral path changes
+   *  -The copy costs O(V + E); depths and the indexes that are built are 
+   *   patched for the new vertex instead of being rebuilt (the ancestor 
+   *   index is rebuilt once enough edges were added, see AncestorIntervals)
+   *  -Throws "IllegalArgumentException" if a hypernym is not in the Digraph
+   * 
+   * @param int array of hypernym vertices
+   * @return int variable representing the new vertex (the next unused id)
+   */
+  synchronized int addVertex( int[] hypernyms ) {
+    HypernymGraph g = graph;
+    int[] targets = new int[hypernyms.length];
+    int count = 0;
+    for ( int w : hypernyms ) {
+      validateVertex( w );
+      int u = g.internal( w );
+      boolean duplicate = false;
+      for ( int i = 0; i < count; i++ ) {
+        if ( targets[i] == u ) duplicate = true;
+      }
+      if ( !duplicate ) targets[count++] = u;
+    }
+    int[] edges = Arrays.copyOf( targets, count );
+    HypernymGraph updated = g.withVertex( edges );
+    int[] from = new int[count];
+    Arrays.fill( from, g.V() );
+    publish( g, updated, from, edges, null );
+    return g.V();
+  }
+  
+  /* Method for adding the hypernym edge v->w
+   *  -Copy-on-write (see addVertex); the labels of 'v' and its descendants
+   *   are the only ones recomputed
+   *  -Throws "IllegalArgumentException" if either vertex is not in the 
+   *   Digraph or if 'v' is 'w' or one of its ancestors (the edge would 
+   *   create a cycle)
+   * 
+   * @param 2 int variables representing the vertex and its new hypernym
+   * @return int array of the vertices whose ancestral paths may have 
+   *         changed ('v' and all of its descendants); empty if the edge 
+   *         already existed
+   */
+  synchronized int[] addEdge( int v, int w ) {
+    validateVertex( v );
+    validateVertex( w );
+    HypernymGraph g = graph;
+    int from = g.internal( v );
+    int to = g.internal( w );
+    if ( g.hasEdge( from, to ) ) return new int[0];
     
-    /* Overloaded constructor for BFSPath object
-     *  -Same Data Structures as normal constructor
-     *  -This constructor allows a single source vertex to form a path towards
-     *   a iterable list of "stopVertices" as the destination for the path
-     * 
-     * -This method calls on bfsStopAt Method
-     * @param Digraph object, int variable rep. source vertex, Integer list of
-     *        target vertices
-     */
-    public BFSPath( Digraph graph, int source, Iterable<Integer> stopVertices ) {
-      visited = new HashSet<Integer>();
-      //edgeTo = new LinearProbingHashST<Integer, Integer>();
-      distTo = new LinearProbingHashST<Integer, Integer>();
+    BFSPath path = scratch.get()[0];
+    path.start( g );
+    path.addSource( w );
+    path.searchAll();
+    if ( path.hasPathTo( from ) ) 
+      throw new IllegalArgumentException( "edge " + v + "->" + w + " would create a cycle" );
+    
+    // Descendants of 'v': BFS down the hyponym edges
+    int[] revOffsets = g.revOffsets();
+    int[] revTargets = g.revTargets();
+    path.start( g );
+    path.addSource( v );
+    for ( int i = 0; i < path.visitedCount(); i++ ) {
+      int x = path.visited( i );
+      for ( int k = revOffsets[x]; k < revOffsets[x + 1]; k++ ) {
+        path.offer( revTargets[k], 0 );
+      }
+    }
+    int[] descendants = new int[path.visitedCount()];
+    int[] affected = new int[descendants.length];
+    for ( int i = 0; i < affected.length; i++ ) {
+      descendants[i] = path.visited( i );
+      affected[i] = g.original( descendants[i] );
+    }
+    publish( g, g.withEdge( from, to ), new int[] { from }, new int[] { to }, descendants );
+    return affected;
+  }
+  
+  // Patches the indexes built for 'g' (if any) to the updated graph, then
+  // publishes it. Queries that see the new graph before its indexes find 
+  // them stale and wait for this update through buildLabelIndex() and 
+  // buildAncestorIndex(); "relabel" is null for a new vertex
+  private void publish( HypernymGraph g, HypernymGraph updated, int[] from, int[] to, int[] relabel ) {
+    if ( labels != null && labels.graph() == g ) {
+      labels = relabel == null ? labels.withVertices( updated ) : labels.withEdge( updated, relabel );
+    }
+    if ( intervals != null && intervals.graph() == g ) intervals = intervals.withEdges( updated, from, to );
+    graph = updated;
+  }
+  
+  //Returns the metrics of this object (disabled until setEnabled( true ))
+  public QueryMetrics getMetrics() {
+    return metrics;
+  }
+  
+  // Runs the searches for the sources already placed on pathA and pathB,
+  // timing them and recording the BFS work when metrics are enabled
+  private Result search( BFSPath pathA, BFSPath pathB ) {
+    return search( pathA, pathB, Integer.MAX_VALUE );
+  }
+  
+  // Same, but the searches may stop once no ancestral path of at most 
+  // "maxLength" can be left (the result is then only exact up to there)
+  private Result search( BFSPath pathA, BFSPath pathB, int maxLength ) {
+    if ( !metrics.isEnabled() ) return runSearch( pathA, pathB, maxLength );
+    int sizeA = pathA.visitedCount();
+    int sizeB = pathB.visitedCount();
+    long start = System.nanoTime();
+    Result result = runSearch( pathA, pathB, maxLength );
+    metrics.recordSearch( System.nanoTime() - start, pathA.visitedCount() + pathB.visitedCount(), 
+                          pathA.edgesScanned() + pathB.edgesScanned(), sizeA, sizeB );
+    return result;
+  }
+  
+  private Result runSearch( BFSPath pathA, BFSPath pathB, int maxLength ) {
+    SearchMode mode = this.mode;
+    if ( mode == SearchMode.LABELS ) {
+      DistanceLabels labels = this.labels;
+      if ( labels == null || labels.graph() != pathA.graph() ) labels = buildLabelIndex();
+      if ( labels.graph() == pathA.graph() ) return labelSearch( labels, pathA, pathB );
+      // The graph was updated after this query started; labels for the
+      // version being searched are gone, so traverse it instead
+      return lockstep( pathA, pathB, maxLength );
+    }
+    if ( mode == SearchMode.FULL && maxLength == Integer.MAX_VALUE ) {
+      pathA.searchAll();
+      pathB.searchAll();
+      return closestCommonAncestor( pathA, pathB );
+    }
+    return lockstep( pathA, pathB, maxLength );
+  }
+  
+  /* Walks the vertices visited by pathB once and keeps the one that was also
+   * visited by pathA with the smallest total distance
+   *  -pathA's marker array answers "was this visited" in constant time, so
+   *   the selection is linear in the visited vertices
+   *  -Leaves the ancestor at -1 if the two searches never met
+   * 
+   * @return Result object holding the closest common ancestor and its length
+   */
+  private Result closestCommonAncestor( BFSPath pathA, BFSPath pathB ) {
+    int sca = -1;
+    int scaPathLength = Integer.MAX_VALUE;
+    for ( int i = 0; i < pathB.visitedCount(); i++ ) {
+      int b = pathB.visited( i );
+      if ( pathA.hasPathTo( b ) ) {
+        int pathLength = pathA.distTo( b ) + pathB.distTo( b );
+        if ( pathLength < scaPathLength ) {
+          sca = b;
+          scaPathLength = pathLength;
+        }
+      }
+    }
+    return toResult( pathA.graph(), sca, scaPathLength );
+  }
+  
+  /* Bidirectional search that expands pathA and pathB one level at a time
+   *  -Every vertex is checked against the other side's markers the moment it
+   *   is discovered, so a common ancestor is scored as soon as the second
+   *   side reaches it (BFS distances are final on discovery)
+   *  -Once a side has discovered every vertex up to depth 'd', any ancestor
+   *   it has not reached yet is at least 'd + 1' away from it, so no unseen
+   *   ancestor can do better than min( dA, dB ) + 1; the search stops when
+   *   the best ancestral path is no longer than that bound
+   *  -A side that runs out of vertices no longer bounds the other one
+   *  -With a budget, the search also stops once the bound is past 
+   *   "maxLength" (the shallower side is always the one expanded, so 
+   *   neither side gets deeper than "maxLength")
+   * 
+   * @return Result object holding the closest common ancestor and its length
+   */
+  private Result lockstep( BFSPath pathA, BFSPath pathB, int maxLength ) {
+    int sca = -1;
+    int best = Integer.MAX_VALUE;
+    for ( int i = 0; i < pathB.visitedCount(); i++ ) {
+      int b = pathB.visited( i );
+      if ( pathA.hasPathTo( b ) ) {
+        sca = b;
+        best = 0;
+        break;
+      }
+    }
+    while ( !pathA.isExhausted() || !pathB.isExhausted() ) {
+      int bound = Math.min( pathA.isExhausted() ? Integer.MAX_VALUE - 1 : pathA.depth(), 
+                            pathB.isExhausted() ? Integer.MAX_VALUE - 1 : pathB.depth() ) + 1;
+      if ( best <= bound || bound > maxLength ) break;
       
-      bfsStopAt( graph, source, stopVertices );
+      BFSPath near, far;
+      if ( pathB.isExhausted() || ( !pathA.isExhausted() && pathA.depth() <= pathB.depth() ) ) {
+        near = pathA;
+        far = pathB;
+      }
+      else {
+        near = pathB;
+        far = pathA;
+      }
+      int from = near.visitedCount();
+      near.expandLevel();
+      for ( int i = from; i < near.visitedCount(); i++ ) {
+        int x = near.visited( i );
+        if ( far.hasPathTo( x ) ) {
+          int pathLength = near.distTo( x ) + far.distTo( x );
+          if ( pathLength < best ) {
+            sca = x;
+            best = pathLength;
+          }
+        }
+      }
     }
+    return toResult( pathA.graph(), sca, best );
+  }
+  
+  /* Answers a query from the distance labels of the sources on pathA and 
+   * pathB (no graph traversal)
+   *  -Two single vertices: merges their sorted label lists
+   *  -Sets of vertices: folds the labels of A's sources into pathA's marker 
+   *   and distance arrays (keeping the smallest distance), then scans the 
+   *   labels of B's sources against them
+   * 
+   * @return Result object holding the closest common ancestor and its length
+   */
+  private Result labelSearch( DistanceLabels labels, BFSPath pathA, BFSPath pathB ) {
+    int sca = -1;
+    int best = Integer.MAX_VALUE;
+    int sourcesA = pathA.visitedCount();
+    int sourcesB = pathB.visitedCount();
     
-    /* Method for implementing the Breadth-First Search algorithm for finding 
-     * the paths
-     *   -Uses a queue data structure that starts by putting the source vertex
-     *    on the queue and finding the adjacent vetices to it. It then puts 
-     *    those vertices on the queue and repeats the process till the queue is
-     *    empty (while keeping track of distances from vertices and what edges
-     *    where taken)
-     *
-     * @param Digraph object and an int variable representing the source vertex
-     */
-    private void bfs( Digraph graph, int source ) {
-      Queue<Integer> q = new Queue<Integer>();
-      visited.add( source );
-      distTo.put( source, 0 );
-      q.enqueue( source );
-      while ( !q.isEmpty() ) {
-        int v = q.dequeue();
-        for ( int w : graph.adj( v ) ) {
-          if ( !visited.contains( w ) ) {
-            //edgeTo.put( w, v );
-            distTo.put( w, distTo.get( v ) + 1 );
-            visited.add( w );
-            q.enqueue( w );
+    if ( sourcesA == 1 && sourcesB == 1 ) {
+      int v = pathA.visited( 0 );
+      int w = pathB.visited( 0 );
+      int i = labels.from( v );
+      int j = labels.from( w );
+      while ( i < labels.to( v ) && j < labels.to( w ) ) {
+        int a = labels.ancestor( i );
+        int b = labels.ancestor( j );
+        if ( a < b ) i++;
+        else if ( a > b ) j++;
+        else {
+          int pathLength = labels.distance( i++ ) + labels.distance( j++ );
+          if ( pathLength < best ) {
+            sca = a;
+            best = pathLength;
           }
         }
       }
+      return toResult( pathA.graph(), sca, best );
     }
     
-     /* Overloaded Method for implementing the Breadth-First Search algorithm 
-      * for finding the paths
-     *   -Uses a queue data structure that starts by iterating and putting the 
-     *    source vertices onto the queue. Then runs a while loop to find the 
-     *    adjacent vetices to each of the vertices in the queue. It then puts 
-     *    those vertices on the queue and repeats the process till the queue is
-     *    empty (while keeping track of distances from vertices and what edges
-     *    where taken)
-     *
-     * @param Digraph object and an interable list of Integer variables 
-     *        representing the source vertices
-     */
-    private void bfs( Digraph graph, Iterable<Integer> sources ) {
-      Queue<Integer> q = new Queue<Integer>();
-      for ( int i : sources ) {
-        visited.add( i );
-        distTo.put( i, 0 );
-        q.enqueue( i );
+    for ( int s = 0; s < sourcesA; s++ ) {
+      int v = pathA.visited( s );
+      for ( int i = labels.from( v ); i < labels.to( v ); i++ ) {
+        pathA.offer( labels.ancestor( i ), labels.distance( i ) );
       }
-      while ( !q.isEmpty() ) {
-        int v = q.dequeue();
-        for ( int w : graph.adj( v ) ) {
-          if ( !visited.contains( w ) ) {
-            //edgeTo.put( w, v );
-            distTo.put( w, distTo.get( v ) + 1 );
-            visited.add( w );
-            q.enqueue( w );
+    }
+    for ( int s = 0; s < sourcesB; s++ ) {
+      int w = pathB.visited( s );
+      for ( int j = labels.from( w ); j < labels.to( w ); j++ ) {
+        int b = labels.ancestor( j );
+        if ( pathA.hasPathTo( b ) ) {
+          int pathLength = pathA.distTo( b ) + labels.distance( j );
+          if ( pathLength < best ) {
+            sca = b;
+            best = pathLength;
           }
         }
       }
     }
+    return toResult( pathA.graph(), sca, best );
+  }
+  
+  // Wraps a selected ancestor (translated back to its original id), using
+  // the root and the number of vertices when the two searches never met
+  private Result toResult( HypernymGraph g, int sca, int pathLength ) {
+    if ( sca < 0 ) return new Result( root, g.V() );
+    return new Result( g.original( sca ), pathLength );
+  }
+  
+  // Graph and root (used when writing a snapshot)
+  HypernymGraph graph() {
+    return graph;
+  }
+  
+  int root() {
+    return root;
+  }
+  
+  private void validateVertex( int v ) {
+    if ( v < 0 || v >= graph.V() )
+      throw new IllegalArgumentException( "vertex " + v + " is not in the Digraph" );
+  }
+  
+  //Callback of nearest: returns false to stop the walk
+  public interface VertexVisitor {
+    boolean visit( int vertex, int distance );
+  }
+  
+  //Immutable pair of a Shortest Common Ancestor and its ancestral path length
+  public static class Result {
+    private final int ancestor;
+    private final int length;
+    
+    public Result( int ancestor, int length ) {
+      this.ancestor = ancestor;
+      this.length = length;
+    }
+    
+    public int ancestor() {
+      return ancestor;
+    }
+    
+    public int length() {
+      return length;
+    }
+  }
+  
+  //Immutable list of the ancestors of a set of vertices and their distances
+  // (the vertices are kept in the search numbering and translated on access)
+  public static class AncestorSet {
+    private final int[] vertices;
+    private final int[] distances;
+    private final int[] toOriginal;
+    
+    private AncestorSet( int[] vertices, int[] distances, int[] toOriginal ) {
+      this.vertices = vertices;
+      this.distances = distances;
+      this.toOriginal = toOriginal;
+    }
+    
+    public int size() {
+      return vertices.length;
+    }
+    
+    public int vertex( int i ) {
+      return toOriginal[vertices[i]];
+    }
+    
+    public int distance( int i ) {
+      return distances[i];
+    }
+  }
+  
+  /* Created class for obtaining the path needed via BFS
+   *  -Uses 4 primitive arrays sized to the amount of vertices:
+   *    -"marked" stores the epoch in which a vertex was last visited, so 
+   *     bumping the epoch clears the whole array without touching it
+   *    -"distTo" stores the distance from the sources (only valid for
+   *     vertices marked in the current epoch)
+   *    -"edgeTo" stores the vertex each vertex was discovered from (-1 for
+   *     the sources), so a shortest path back to a source can be walked
+   *    -"queue" is the BFS queue; as every vertex is enqueued once it also
+   *     doubles as the list of visited vertices
+   *  -The search can either be run to completion (searchAll) or one level
+   *   at a time (expandLevel)
+   *  -Sources are given as original vertex ids; everything else works in the
+   *   HypernymGraph's numbering
+   *  -Only reads the (immutable) graph arrays, so an instance is safe to use
+   *   from the one thread that owns it
+   */
+  private static class BFSPath {
+    private HypernymGraph graph;
+    private int[] adjOffsets;
+    private int[] adjTargets;
+    private int[] toInternal;
+    private int[] marked = new int[0];
+    private int[] distTo = new int[0];
+    private int[] edgeTo = new int[0];
+    private int[] queue = new int[0];
+    private int epoch;
+    private int head;
+    private int tail;
+    private int depth;
+    private long edgesScanned;
+    
+    // Starts a new search of 'graph' by bumping the epoch (clearing the 
+    // marks when the counter wraps around); the arrays grow with the graph
+    public void start( HypernymGraph graph ) {
+      if ( graph != this.graph ) {
+        this.graph = graph;
+        adjOffsets = graph.offsets();
+        adjTargets = graph.targets();
+        toInternal = graph.toInternal();
+        if ( graph.V() > marked.length ) {
+          marked = new int[graph.V()];
+          distTo = new int[graph.V()];
+          edgeTo = new int[graph.V()];
+          queue = new int[graph.V()];
+          epoch = 0;
+        }
+      }
+      if ( ++epoch == 0 ) {
+        Arrays.fill( marked, 0 );
+        epoch = 1;
+      }
+      head = 0;
+      tail = 0;
+      depth = 0;
+      edgesScanned = 0;
+    }
     
-    /* Runs BFS from an inputted source vertex to an interable
-     * list of stopping point vertices labeled "stopVertices" 
-     *  -uses similar mmethods of implementation as above method using BFS to
-     *   find the path from the source vertex to end vertices
-     * 
-     * @param Digraph object, int varaible representing source vertex, and an 
-     *        interable list of Integer variables representing the source 
-     *        vertices
+    // Puts a source vertex (original id) on the queue at distance 0
+    // (ignoring duplicates)
+    public void addSource( int v ) {
+      if ( v < 0 || v >= toInternal.length )
+        throw new IllegalArgumentException( "vertex " + v + " is not in the Digraph" );
+      int u = toInternal[v];
+      if ( marked[u] != epoch ) visit( u, 0, -1 );
+    }
+    
+    // Records 'v' at distance "dist" unless it is already known to be closer
+    public void offer( int v, int dist ) {
+      if ( marked[v] != epoch ) visit( v, dist, -1 );
+      else if ( dist < distTo[v] ) distTo[v] = dist;
+    }
+    
+    private void visit( int v, int dist, int from ) {
+      marked[v] = epoch;
+      distTo[v] = dist;
+      edgeTo[v] = from;
+      queue[tail++] = v;
+    }
+    
+    /* Method for implementing the Breadth-First Search algorithm for finding 
+     * the paths
+     *   -Dequeues vertices and puts their unvisited adjacent vertices on the
+     *    queue till the queue is empty (while keeping track of distances)
      */
-    private void bfsStopAt( Digraph graph, int source, Iterable<Integer> stopVertices ) {
-      Queue<Integer> q = new Queue<Integer>();
-      HashSet<Integer> stopVerticesSet = new HashSet<Integer>();
-      for ( int i : stopVertices ) {
-        stopVerticesSet.add( i );
-      }
-      visited.add( source );
-      distTo.put( source, 0 );
-      q.enqueue( source );
-      while ( !q.isEmpty() ) {
-        int v = q.dequeue();
-        if ( stopVerticesSet.contains( v ) ) {
-          stopVertex = v;
-          break;
-        }
-        for ( int w : graph.adj( v ) ) {
-          if ( !visited.contains( w ) ) {
-            //edgeTo.put( w, v );
-            distTo.put( w, distTo.get( v ) + 1 );
-            visited.add( w );
-            q.enqueue( w );
-          }
-        }
+    public void searchAll() {
+      while ( head < tail ) {
+        expand( queue[head++] );
       }
+      depth = tail == 0 ? 0 : distTo[queue[tail - 1]];
     }
     
-    //Method for returning the stopVertex
-    public int getStopVertex() {
-      return stopVertex;
+    /* Dequeues exactly the vertices at the current depth, so that every
+     * vertex at depth + 1 has been discovered once it returns
+     */
+    public void expandLevel() {
+      int levelEnd = tail;
+      while ( head < levelEnd ) {
+        expand( queue[head++] );
+      }
+      depth++;
     }
     
-    //Method for returing an interable list of the vertices that have been 
-    //visisted upon traversal 
-    public Iterable<Integer> getVisitedVertices() {
-      Queue<Integer> iterable = new Queue<Integer>();
-      Iterator<Integer> iterator = visited.iterator();
-      while ( iterator.hasNext() ) {
-        iterable.enqueue( iterator.next() );
+    // Enqueues every unvisited hypernym of 'v'
+    private void expand( int v ) {
+      int d = distTo[v] + 1;
+      edgesScanned += adjOffsets[v + 1] - adjOffsets[v];
+      for ( int k = adjOffsets[v]; k < adjOffsets[v + 1]; k++ ) {
+        int w = adjTargets[k];
+        if ( marked[w] != epoch ) visit( w, d, v );
       }
-      return iterable;
+    }
+    
+    // Graph being searched since the last start
+    public HypernymGraph graph() {
+      return graph;
+    }
+    
+    // Amount of edges looked at since the search started
+    public long edgesScanned() {
+      return edgesScanned;
+    }
+    
+    // Deepest level whose vertices have all been discovered
+    public int depth() {
+      return depth;
+    }
+    
+    // True once there are no vertices left to dequeue
+    public boolean isExhausted() {
+      return head == tail;
+    }
+    
+    public boolean hasPathTo( int v ) {
+      return marked[v] == epoch;
+    }
+    
+    //Methods for walking the vertices visited by the last search in BFS order
+    public int visitedCount() {
+      return tail;
+    }
+    
+    public int visited( int i ) {
+      return queue[i];
     }
     
     /*Method for returning the distance to a vertex v
@@ -315,7 +1117,12 @@ public class ShortestCommonAncestor {
      * @return int value representing the distance to vertex v
      */
     public int distTo( int v ) {
-      return distTo.get( v );
+      return distTo[v];
+    }
+    
+    // Vertex 'v' was discovered from (-1 for a source or an offered vertex)
+    public int edgeTo( int v ) {
+      return edgeTo[v];
     }
   }
   
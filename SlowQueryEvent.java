@@ -0,0 +1,42 @@
+/******************************************************************************
+ * Compilation:  javac SlowQueryEvent.java
+ * ----------------------------------------------------------------------------
+ * Java Flight Recorder event committed by QueryMetrics for every query that
+ * takes at least the slow query threshold (only while metrics are enabled
+ * and a recording with "wordnet.SlowQuery" turned on is running).
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+@Name( "wordnet.SlowQuery" )
+@Label( "Slow WordNet Query" )
+@Category( "WordNet" )
+@Description( "A shortest common ancestor query that exceeded the slow query threshold" )
+public class SlowQueryEvent extends Event {
+  
+  @Label( "Operation" )
+  String operation;
+  
+  @Label( "Latency" )
+  @Timespan( Timespan.NANOSECONDS )
+  long latency;
+  
+  @Label( "Vertices Visited" )
+  long verticesVisited;
+  
+  @Label( "Edges Scanned" )
+  long edgesScanned;
+  
+  @Label( "Synset Set Size A" )
+  int sizeA;
+  
+  @Label( "Synset Set Size B" )
+  int sizeB;
+}
@@ -0,0 +1,155 @@
+/******************************************************************************
+ * Compilation:  javac StringArena.java
+ * ----------------------------------------------------------------------------
+ * Immutable list of strings stored back to back as UTF-8 in a single byte
+ * buffer, where string 'i' is bytes[offsets[i]] .. bytes[offsets[i + 1] - 1].
+ * An arena can also be a list of spans (string 'i' is bytes[starts[i]] .. 
+ * bytes[ends[i] - 1]) over the bytes of another arena, which lets the noun
+ * dictionary point into the synsets instead of copying every noun.
+ * The buffers can live on the heap or inside a memory-mapped snapshot file, 
+ * and a String object is only created when a caller asks for one.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+public class StringArena {
+  
+  private final ByteBuffer bytes;
+  private final IntBuffer offsets;
+  // End of every string for a span arena (null when strings are back to back)
+  private final IntBuffer ends;
+  private final int size;
+  
+  /* Constructor for StringArena object over existing buffers
+   * 
+   * @param ByteBuffer holding the UTF-8 bytes and IntBuffer holding the
+   *        size + 1 offsets into it
+   */
+  StringArena( ByteBuffer bytes, IntBuffer offsets ) {
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.ends = null;
+    this.size = offsets.limit() - 1;
+  }
+  
+  /* Constructor for a span arena over existing buffers
+   * 
+   * @param ByteBuffer holding the UTF-8 bytes and 2 IntBuffers holding the
+   *        start and end of every string
+   */
+  StringArena( ByteBuffer bytes, IntBuffer starts, IntBuffer ends ) {
+    this.bytes = bytes;
+    this.offsets = starts;
+    this.ends = ends;
+    this.size = starts.limit();
+  }
+  
+  /* Method for encoding an array of strings into a heap-backed arena
+   * 
+   * @param String array to encode
+   * @return StringArena object holding the strings in the same order
+   */
+  public static StringArena of( String[] strings ) {
+    byte[][] encoded = new byte[strings.length][];
+    int[] offsets = new int[strings.length + 1];
+    for ( int i = 0; i < strings.length; i++ ) {
+      encoded[i] = strings[i].getBytes( StandardCharsets.UTF_8 );
+      offsets[i + 1] = offsets[i] + encoded[i].length;
+    }
+    byte[] bytes = new byte[offsets[strings.length]];
+    for ( int i = 0; i < strings.length; i++ ) {
+      System.arraycopy( encoded[i], 0, bytes, offsets[i], encoded[i].length );
+    }
+    return new StringArena( ByteBuffer.wrap( bytes ), IntBuffer.wrap( offsets ) );
+  }
+  
+  //Returns the amount of strings in the arena
+  public int size() {
+    return size;
+  }
+  
+  /* Method for decoding string 'i' into a new String object
+   * 
+   * @param int variable representing the position of the string
+   * @return String object
+   */
+  public String get( int i ) {
+    return decode( bytes, offsets.get( i ), end( i ) );
+  }
+  
+  // Decodes bytes[from] .. bytes[to - 1] into a new String object
+  static String decode( ByteBuffer bytes, int from, int to ) {
+    int length = to - from;
+    if ( bytes.hasArray() ) 
+      return new String( bytes.array(), bytes.arrayOffset() + from, length, StandardCharsets.UTF_8 );
+    byte[] copy = new byte[length];
+    for ( int k = 0; k < length; k++ ) {
+      copy[k] = bytes.get( from + k );
+    }
+    return new String( copy, StandardCharsets.UTF_8 );
+  }
+  
+  /* Method for computing String.hashCode() of bytes[from] .. bytes[to - 1]
+   * without decoding them
+   *  -ASCII bytes are their own UTF-16 chars; the first non-ASCII byte 
+   *   falls back to decoding the string
+   * 
+   * @param ByteBuffer and the range of UTF-8 bytes
+   * @return int value equal to the hashCode of the decoded String
+   */
+  static int hashCode( ByteBuffer bytes, int from, int to ) {
+    int h = 0;
+    for ( int k = from; k < to; k++ ) {
+      byte b = bytes.get( k );
+      if ( b < 0 ) return decode( bytes, from, to ).hashCode();
+      h = 31 * h + b;
+    }
+    return h;
+  }
+  
+  // Start and end of string 'i' in bytes()
+  int start( int i ) {
+    return offsets.get( i );
+  }
+  
+  int end( int i ) {
+    return ends == null ? offsets.get( i + 1 ) : ends.get( i );
+  }
+  
+  /* Method for comparing string 'i' with a String without decoding it
+   *  -ASCII characters are compared byte by byte; the first non-ASCII byte
+   *   falls back to decoding the string
+   * 
+   * @param int variable representing the position and the String to compare
+   * @return Boolean value based off if the two are equal
+   */
+  public boolean equalsAt( int i, String s ) {
+    int from = offsets.get( i );
+    int length = end( i ) - from;
+    if ( length < s.length() ) return false;
+    for ( int k = 0; k < length; k++ ) {
+      byte b = bytes.get( from + k );
+      if ( b < 0 ) return get( i ).equals( s );
+      if ( k >= s.length() || s.charAt( k ) != b ) return false;
+    }
+    return length == s.length();
+  }
+  
+  // Buffers backing the arena (used when writing a snapshot); offsets() 
+  // holds the starts of a span arena
+  ByteBuffer bytes() {
+    return bytes;
+  }
+  
+  IntBuffer offsets() {
+    return offsets;
+  }
+  
+  IntBuffer ends() {
+    return ends;
+  }
+}
@@ -1,169 +1,715 @@
 /******************************************************************************
  * Compilation:  javac WordNet.java
- * Dependencies: ShortestCommonAncestor.java
+ * Dependencies: ShortestCommonAncestor.java, HypernymGraph.java, 
+ *               WordNetLoader.java, NounIndex.java, StringArena.java, 
+ *               WordNetSnapshot.java
  * ----------------------------------------------------------------------------
  * Program takes in a String containing information about sets of nouns and
  * their synonyms and a string outlining the relationship between the sets.
- * It creates a Digraph representation of these sets and relationships and then
+ * It creates a graph representation of these sets and relationships and then
  * calls on the ShortestCommonAncestor.java Program.
+ * Synsets, nouns and hypernym edges can be added after loading; they are 
+ * kept in a small copy-on-write overlay next to the loaded (immutable)
+ * synsets and noun dictionary.
  * 
  * Author:@Julian Ceja, @Dakota Jackson
  * ***************************************************************************/
 import edu.princeton.cs.algs4.StdOut;
-import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.Digraph;
-import edu.princeton.cs.algs4.LinearProbingHashST;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 
 public class WordNet {
   
-  private LinearProbingHashST<Integer, String> synsetTable;
-  private ShortestCommonAncestor SCA;
-  private String[] nouns;
+  // All parts are immutable once built, so a WordNet can be queried from
+  // many threads at once; updates replace the graph and the additions as a
+  // whole (and are serialized on the WordNet)
+  private final StringArena synsets;
+  private final ShortestCommonAncestor SCA;
+  private final NounIndex nounIndex;
+  // Synsets and nouns added after loading (null until the first addition)
+  private volatile Additions additions;
+  // Optional cache of query results (null when turned off)
+  private final QueryCache cache;
   
   /* Constructor method for WordNet object
    *  -Takes in 2 String variables (read from text files)
    *  -Throws "NullPointerException" if either string is null
    */
   public WordNet( String synsets, String hypernyms ) {
+    this( synsets, hypernyms, 0 );
+  }
+  
+  /* Constructor method for WordNet object with a result cache
+   *  -Same as above, but distance/sca results are cached for up to 
+   *   "cacheCapacity" pairs of nouns (0 turns the cache off)
+   */
+  public WordNet( String synsets, String hypernyms, int cacheCapacity ) {
     if ( synsets == null || hypernyms == null ) 
       throw new NullPointerException();
     
-    //Block of code: Reads synsets and stores them in hashing table
-    synsetTable = new LinearProbingHashST<Integer, String>();
-    In synsetsInput = new In( synsets );
-    int nounCount = 0;
-    /* Loop to put an array representation of a synset (group of nouns)
-     * at each index of the table
-     *  -SynsetInfo = String array with SynsetInfo[1] representing the noun
-     *                and SynsetInfo[0] representing the attatched Synset id
-     *  -Also keeps track of the amount of total nouns through int nounCount
-     */ 
-    while ( !synsetsInput.isEmpty() ) {
-      String[] synsetInfo = synsetsInput.readLine().split( "," );
-      String[] synsetNouns = synsetInfo[1].split( " " );
-      synsetTable.put( Integer.valueOf( synsetInfo[0] ), synsetInfo[1] );
-      nounCount += synsetNouns.length;
-    }
-    synsetsInput.close();
-    
-    // Reads hypernyms and creates graph based on those relationships
-    Digraph graph = new Digraph( synsetTable.size() );
-    In hypernymsInput = new In( hypernyms );
-    int root = -1;
-     /* Loop to put hypernyms as appropriate edges in created Digraph
-      *  -Format of given text has hypernyms seperated by a ","
-      */
-    while ( !hypernymsInput.isEmpty() ) {
-      String[] hypernymsInfo = hypernymsInput.readLine().split( "," );
-      int v = Integer.parseInt( hypernymsInfo[0] );
-      if ( hypernymsInfo.length == 1 ) root = v;
-      for ( int i = 1; i < hypernymsInfo.length; i++ ) {
-        int w = Integer.parseInt( hypernymsInfo[i] );
-        graph.addEdge( v, w );
-      }
-    }
-   //Creates ShortestCommonAncestor object using created graph for constructor
+    //Parses both files (concurrently) into the synsets and a compressed
+    //graph, then creates the ShortestCommonAncestor object and noun dictionary
+    WordNetLoader loader = WordNetLoader.load( synsets, hypernyms );
+    this.synsets = loader.synsets();
+    long start = System.nanoTime();
+    HypernymGraph graph = HypernymGraph.build( loader.adjOffsets(), loader.adjTargets() );
     SCA = new ShortestCommonAncestor( graph );
-    SCA.setRoot( root );
-    //Calls on extractNouns method using the aforementioned variable nounCount
-    extractNouns( nounCount );
+    SCA.setRoot( loader.root() );
+    long renumbered = System.nanoTime();
+    nounIndex = NounIndex.build( this.synsets, loader.nounCount() );
+    loader.recordLoadPhases( SCA.getMetrics() );
+    SCA.getMetrics().recordLoadPhase( "graph.renumber", renumbered - start );
+    SCA.getMetrics().recordLoadPhase( "noun.index", System.nanoTime() - renumbered );
+    cache = newCache( cacheCapacity );
+  }
+  
+  /* Constructor for a WordNet whose parts are already built
+   *  (used when opening a snapshot)
+   */
+  WordNet( StringArena synsets, ShortestCommonAncestor SCA, NounIndex nounIndex, int cacheCapacity ) {
+    this.synsets = synsets;
+    this.SCA = SCA;
+    this.nounIndex = nounIndex;
+    cache = newCache( cacheCapacity );
+  }
+  
+  private static QueryCache newCache( int cacheCapacity ) {
+    if ( cacheCapacity < 0 ) throw new IllegalArgumentException( "cache capacity must not be negative" );
+    return cacheCapacity == 0 ? null : new QueryCache( cacheCapacity );
+  }
+  
+  /* Method for opening a WordNet from a binary snapshot file written by 
+   * writeSnapshot
+   *  -The file is memory-mapped and queries read the nouns and synsets
+   *   straight from the mapping; nothing is parsed or sorted
+   *  -Throws "IllegalArgumentException" if the file cannot be read or is not
+   *   a snapshot of a supported version
+   * 
+   * @param String representing the snapshot file
+   * @return WordNet object backed by the snapshot
+   */
+  public static WordNet fromSnapshot( String snapshot ) {
+    return fromSnapshot( snapshot, 0 );
+  }
+  
+  /* Same as above with a result cache for up to "cacheCapacity" pairs of 
+   * nouns (0 turns the cache off)
+   */
+  public static WordNet fromSnapshot( String snapshot, int cacheCapacity ) {
+    if ( snapshot == null ) throw new NullPointerException();
+    return WordNetSnapshot.read( snapshot, cacheCapacity );
+  }
+  
+  /* Method for compiling this WordNet into a binary snapshot file
+   * 
+   * @param String representing the snapshot file to (over)write
+   */
+  public synchronized void writeSnapshot( String snapshot ) {
+    if ( snapshot == null ) throw new NullPointerException();
+    WordNetSnapshot.write( this, snapshot );
   }
   
-  //Returns an iterable list of the nouns
+  //Returns an iterable list of the distinct nouns
   public Iterable<String> nouns() {
-    return Arrays.asList( nouns );
+    Additions added = additions;
+    if ( added == null ) return nounIndex.nouns();
+    return () -> new Iterator<String>() {
+      private final Iterator<String> loaded = nounIndex.nouns().iterator();
+      private final Iterator<String> extra = added.newNouns.iterator();
+      
+      public boolean hasNext() {
+        return loaded.hasNext() || extra.hasNext();
+      }
+      
+      public String next() {
+        return loaded.hasNext() ? loaded.next() : extra.next();
+      }
+    };
   }
   
   /* Method for checking if an inputted string is a noun within the WordNet
-   *  -Uppercases the given word to alleviate casing issues
-   *  -Uses Binary Search algorithm to give logarithmic time complexity
-   *    -"split" method to grab just noun part of concatenated string
+   *  -Single hash lookup in the noun dictionary
    * 
    * @param String object "word"
    * @return Boolean value based off if the noun is in the WordNet
    */
   public boolean isNoun( String word ) {
-    //word = word.toUpperCase();
-    int lo = 0;
-    int hi = nouns.length - 1;
-    while ( lo <= hi ) {
-      int mid = ( lo + hi ) / 2;
-      String[] noun = nouns[mid].split( " " );
-      if ( word.compareTo( noun[0] ) < 0 ) hi = mid - 1;
-      else if ( word.compareTo( noun[0] ) > 0 ) lo = mid + 1;
-      else return true;
-    }
-    return false;
+    if ( nounIndex.contains( word ) ) return true;
+    Additions added = additions;
+    return added != null && added.nouns.containsKey( word );
   }
   
   //Method for returning shortest common ancestor as a string
   public String sca( String noun1, String noun2 ) {
-    int sca = SCA.ancestor( synsetIDs( noun1 ), synsetIDs( noun2 ) );
-    return synsetTable.get( sca );
+    QueryMetrics metrics = SCA.getMetrics();
+    if ( !metrics.isEnabled() ) return synsetOf( query( noun1, noun2 ).ancestor() );
+    long start = System.nanoTime();
+    String sca = synsetOf( query( noun1, noun2 ).ancestor() );
+    metrics.record( "sca", System.nanoTime() - start );
+    return sca;
   }
   
   // Method for returning the shortest distance between the two nouns
   public int distance( String noun1, String noun2 ) {
-    return SCA.length( synsetIDs( noun1 ), synsetIDs( noun2 ) );
-    
+    QueryMetrics metrics = SCA.getMetrics();
+    if ( !metrics.isEnabled() ) return query( noun1, noun2 ).length();
+    long start = System.nanoTime();
+    int distance = query( noun1, noun2 ).length();
+    metrics.record( "distance", System.nanoTime() - start );
+    return distance;
   }
   
-  
-  //Returns ShortestCommonAncestor object
-  public ShortestCommonAncestor getSCA() {
-    return SCA;
+  /* Method for returning both the shortest common ancestor and the distance
+   * between two nouns while only running the searches once
+   * 
+   * @param 2 String objects representing nouns in the WordNet
+   * @return SCAResult object holding the ancestor synset and the distance
+   */
+  public SCAResult scaAndDistance( String noun1, String noun2 ) {
+    QueryMetrics metrics = SCA.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    ShortestCommonAncestor.Result result = query( noun1, noun2 );
+    SCAResult scaResult = new SCAResult( synsetOf( result.ancestor() ), result.length() );
+    if ( start != 0 ) metrics.record( "scaAndDistance", System.nanoTime() - start );
+    return scaResult;
   }
   
-  /* Method for extracting the Nouns out of the Synsets stored in the table
-   * -Outer loop iterates through the index of the table 
-   * -Inner loop interates through the array of nouns in the synset at index
-   *   -Set to uppercase to alleviate any casing issues on searching for nouns
-   *   -The "+i" concatenates the Synset id to the noun for easy tracking
+  /* Method for finding the distance between 2 nouns only if it is at most
+   * "maxDistance"
+   *  -A cached exact result is used when there is one; otherwise the 
+   *   searches stop at the budget instead of running up to the root (a 
+   *   distance found within the budget is exact and gets cached)
+   *  -Throws "IllegalArgumentException" if a noun is not in the WordNet or
+   *   "maxDistance" is negative
    * 
-   * @param int variable representing the amount of nouns in the WordNet
+   * @param 2 String objects representing nouns and the maximum distance
+   * @return int variable representing the distance, or -1 if it is more 
+   *         than "maxDistance"
    */
-  private void extractNouns( int nounCount ) {
-    nouns = new String[nounCount];
-    for ( int k = 0, i = 0; i < synsetTable.size(); i++ ) {
-      String[] currentSynset = synsetTable.get( i ).split( " " );
-      for ( int j = 0; j < currentSynset.length; j++, k++ ) {
-        nouns[k] = currentSynset[j] + " " + i;
+  public int distanceWithin( String noun1, String noun2, int maxDistance ) {
+    if ( maxDistance < 0 ) throw new IllegalArgumentException( "maxDistance must not be negative" );
+    int[] idsA = idsOf( noun1 );
+    int[] idsB = idsOf( noun2 );
+    QueryMetrics metrics = SCA.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    ShortestCommonAncestor.Result result = null;
+    if ( cache != null ) {
+      long generation = cache.generation();
+      result = cache.get( idsA, idsB );
+      if ( result == null ) {
+        ShortestCommonAncestor.Result found = SCA.ancestorAndLengthWithin( idsA, idsB, maxDistance );
+        if ( found != null ) cache.put( idsA, idsB, found, generation );
+        result = found;
       }
     }
-    Arrays.sort( nouns );
+    else result = SCA.ancestorAndLengthWithin( idsA, idsB, maxDistance );
+    if ( start != 0 ) metrics.record( "distanceWithin", System.nanoTime() - start );
+    return result == null || result.length() > maxDistance ? -1 : result.length();
   }
   
-  // Method for getting Synset id by splitting concatented string at space
-  // and then grabbing the 2nd index of string array post-split
-  public Iterable<Integer> synsetIDs( String noun ) {
-    if ( !isNoun( noun ) ) throw new IllegalArgumentException( "Noun not in WordNet" );
-    
-    // noun = noun.toUpperCase();
-    LinkedList<Integer> synsetIDs = new LinkedList<Integer>();
-    int lo = 0;
-    int hi = nouns.length - 1;
-    while ( lo <= hi ) {
-      int mid = ( lo + hi ) / 2;
-      String[] nounInfo = nouns[mid].split( " " );
-      if ( noun.compareTo( nounInfo[0] ) < 0 ) hi = mid - 1;
-      else if ( noun.compareTo( nounInfo[0] ) > 0 ) lo = mid + 1;
-      else {
-        for ( int i = mid; noun.equals( nounInfo[0] ); nounInfo = nouns[--i].split( " " ) ) {
-          synsetIDs.add( Integer.valueOf( nounInfo[1] ) );
+  /* Method for the shortest ancestral path between 2 nouns, i.e. the 
+   * synsets from a synset of noun1 up to their sca and down to a synset of
+   * noun2 (its length is distance( noun1, noun2 ))
+   *  -One bidirectional search finds the path; the synsets are only turned
+   *   into strings as the iteration reaches them
+   *  -Throws "IllegalArgumentException" if a noun is not in the WordNet
+   * 
+   * @param 2 String objects representing nouns in the WordNet
+   * @return Iterable of String objects representing the synsets in order
+   */
+  public Iterable<String> ancestralPath( String noun1, String noun2 ) {
+    int[] path = SCA.ancestralPath( idsOf( noun1 ), idsOf( noun2 ) );
+    return () -> new Iterator<String>() {
+      private int i = 0;
+      
+      public boolean hasNext() {
+        return i < path.length;
+      }
+      
+      public String next() {
+        if ( !hasNext() ) throw new NoSuchElementException();
+        return synsetOf( path[i++] );
+      }
+    };
+  }
+  
+  /* Method for enumerating the hypernym chains of a noun, e.g. "apple", 
+   * "edible_fruit", "produce", ..., "entity" (one chain per path from one of
+   * its synsets up to the root)
+   *  -Lazy: chains are found one at a time by a depth-first search (see
+   *   ShortestCommonAncestor.rootPaths), so stopping after the first few 
+   *   costs only those
+   *  -Throws "IllegalArgumentException" if the noun is not in the WordNet
+   * 
+   * @param String object representing a noun in the WordNet
+   * @return Iterable of String arrays, each holding the synsets of one 
+   *         chain from the noun's synset to the root
+   */
+  public Iterable<String[]> hypernymPaths( String noun ) {
+    int[] ids = idsOf( noun );
+    return () -> new Iterator<String[]>() {
+      private int synset = 0;
+      private Iterator<int[]> paths = SCA.rootPaths( ids[0] ).iterator();
+      
+      public boolean hasNext() {
+        while ( !paths.hasNext() && ++synset < ids.length ) {
+          paths = SCA.rootPaths( ids[synset] ).iterator();
         }
-        nounInfo = nouns[mid + 1].split( " " );
-        for ( int i = mid + 1; noun.equals( nounInfo[0] ); nounInfo = nouns[++i].split( " " ) ) {
-          synsetIDs.add( Integer.valueOf( nounInfo[1] ) );
+        return paths.hasNext();
+      }
+      
+      public String[] next() {
+        if ( !hasNext() ) throw new NoSuchElementException();
+        int[] path = paths.next();
+        String[] synsets = new String[path.length];
+        for ( int i = 0; i < path.length; i++ ) {
+          synsets[i] = synsetOf( path[i] );
         }
-        break;
+        return synsets;
+      }
+    };
+  }
+  
+  /* Method every distance/sca lookup goes through
+   *  -Checks the cache (if there is one) before running the searches and
+   *   stores what the searches found
+   * 
+   * @param 2 String objects representing nouns in the WordNet
+   * @return Result object holding the ancestor id and the length
+   */
+  private ShortestCommonAncestor.Result query( String noun1, String noun2 ) {
+    int[] idsA = idsOf( noun1 );
+    int[] idsB = idsOf( noun2 );
+    if ( cache == null ) return SCA.ancestorAndLength( idsA, idsB );
+    long generation = cache.generation();
+    ShortestCommonAncestor.Result result = cache.get( idsA, idsB );
+    if ( result == null ) {
+      result = SCA.ancestorAndLength( idsA, idsB );
+      cache.put( idsA, idsB, result, generation );
+    }
+    return result;
+  }
+  
+  
+  /* Method for finding the k nouns closest to a noun
+   *  -Runs one traversal outward from the noun's synsets (up through the
+   *   hypernyms, then down through the hyponyms) instead of a distance
+   *   query per noun; it stops as soon as k nouns have been reached, since
+   *   the synsets come out in nondecreasing distance
+   *  -The noun itself is left out; its synonyms come first at distance 0
+   *  -Throws "IllegalArgumentException" if the noun is not in the WordNet or
+   *   k is negative
+   * 
+   * @param String object "noun" and the amount of nouns wanted
+   * @return Neighbor array of at most k nouns, closest first
+   */
+  public Neighbor[] nearest( String noun, int k ) {
+    if ( k < 0 ) throw new IllegalArgumentException( "k must not be negative" );
+    int[] ids = idsOf( noun );
+    QueryMetrics metrics = SCA.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    ArrayList<Neighbor> neighbors = new ArrayList<Neighbor>( Math.min( k, 1024 ) );
+    HashSet<String> seen = new HashSet<String>();
+    seen.add( noun );
+    if ( k > 0 ) {
+      SCA.nearest( ids, ( id, distance ) -> {
+        for ( String other : synsetOf( id ).split( " " ) ) {
+          if ( seen.add( other ) ) {
+            neighbors.add( new Neighbor( other, distance ) );
+            if ( neighbors.size() == k ) return false;
+          }
+        }
+        return true;
+      } );
+    }
+    if ( start != 0 ) metrics.record( "nearest", System.nanoTime() - start );
+    return neighbors.toArray( new Neighbor[neighbors.size()] );
+  }
+  
+  /* Method for checking whether a noun falls under a category, i.e. whether
+   * a synset of "category" is a hypernym (at any distance) of a synset of 
+   * "noun" or the same synset
+   *  -Builds the ancestor index of the graph on first use, after which 
+   *   every check is a few interval probes instead of a search
+   *  -Throws "IllegalArgumentException" if a noun is not in the WordNet
+   * 
+   * @param 2 String objects representing the noun and the category noun
+   * @return boolean value representing if the noun is a kind of category
+   */
+  public boolean isA( String noun, String category ) {
+    int[] ids = idsOf( noun );
+    int[] categoryIds = idsOf( category );
+    SCA.ancestorIndex();
+    QueryMetrics metrics = SCA.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    boolean isA = SCA.isAncestor( categoryIds, ids );
+    if ( start != 0 ) metrics.record( "isA", System.nanoTime() - start );
+    return isA;
+  }
+  
+  /* Bulk version of isA for filtering a list of nouns by one category
+   *  -Throws "IllegalArgumentException" if any noun is not in the WordNet
+   * 
+   * @param String array of nouns and the category noun
+   * @return boolean array where element i tells if nouns[i] is a kind of
+   *         category
+   */
+  public boolean[] isA( String[] nouns, String category ) {
+    if ( nouns == null ) throw new NullPointerException();
+    int[] categoryIds = idsOf( category );
+    SCA.ancestorIndex();
+    QueryMetrics metrics = SCA.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    boolean[] isA = new boolean[nouns.length];
+    for ( int i = 0; i < nouns.length; i++ ) {
+      isA[i] = SCA.isAncestor( categoryIds, idsOf( nouns[i] ) );
+    }
+    if ( start != 0 ) metrics.record( "isA", System.nanoTime() - start );
+    return isA;
+  }
+  
+  /* Batch version of distance for many pairs of nouns
+   *  -Pairs are spread across cores with fork/join
+   *  -Throws "IllegalArgumentException" if the arrays differ in length or any
+   *   noun is not in the WordNet
+   * 
+   * @param 2 String arrays where nouns1[i] and nouns2[i] form pair i
+   * @return int array where element i is the distance of pair i
+   */
+  public int[] distances( String[] nouns1, String[] nouns2 ) {
+    checkPairs( nouns1, nouns2 );
+    int[] distances = new int[nouns1.length];
+    ParallelBatch.forEach( nouns1.length, i -> distances[i] = distance( nouns1[i], nouns2[i] ) );
+    return distances;
+  }
+  
+  /* Batch version of distanceWithin for filtering many pairs of nouns
+   *  -Pairs are spread across cores with fork/join
+   *  -Throws "IllegalArgumentException" if the arrays differ in length, any
+   *   noun is not in the WordNet or "maxDistance" is negative
+   * 
+   * @param 2 String arrays where nouns1[i] and nouns2[i] form pair i, and 
+   *        the maximum distance
+   * @return int array where element i is the distance of pair i, or -1 if
+   *         it is more than "maxDistance"
+   */
+  public int[] distancesWithin( String[] nouns1, String[] nouns2, int maxDistance ) {
+    checkPairs( nouns1, nouns2 );
+    if ( maxDistance < 0 ) throw new IllegalArgumentException( "maxDistance must not be negative" );
+    int[] distances = new int[nouns1.length];
+    ParallelBatch.forEach( nouns1.length, i -> distances[i] = distanceWithin( nouns1[i], nouns2[i], maxDistance ) );
+    return distances;
+  }
+  
+  /* Batch version of scaAndDistance for many pairs of nouns
+   *  -Pairs are spread across cores with fork/join
+   *  -Throws "IllegalArgumentException" if the arrays differ in length or any
+   *   noun is not in the WordNet
+   * 
+   * @param 2 String arrays where nouns1[i] and nouns2[i] form pair i
+   * @return SCAResult array where element i holds the ancestor and distance 
+   *         of pair i
+   */
+  public SCAResult[] scaAndDistances( String[] nouns1, String[] nouns2 ) {
+    checkPairs( nouns1, nouns2 );
+    SCAResult[] results = new SCAResult[nouns1.length];
+    ParallelBatch.forEach( nouns1.length, i -> results[i] = scaAndDistance( nouns1[i], nouns2[i] ) );
+    return results;
+  }
+  
+  /* Method for scoring how similar 2 nouns are
+   *  -Uses the same (cached) search as distance; the depth of the ancestor
+   *   comes from the depths precomputed with the graph
+   *  -Throws "IllegalArgumentException" if a noun is not in the WordNet
+   * 
+   * @param Similarity measure and 2 String objects representing nouns
+   * @return double value of the measure (higher is more similar)
+   */
+  public double similarity( ShortestCommonAncestor.Similarity measure, String noun1, String noun2 ) {
+    if ( measure == null ) throw new NullPointerException();
+    QueryMetrics metrics = SCA.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    double score = SCA.similarity( measure, query( noun1, noun2 ) );
+    if ( start != 0 ) metrics.record( "similarity", System.nanoTime() - start );
+    return score;
+  }
+  
+  /* Batch version of similarity for many pairs of nouns
+   *  -Pairs are spread across cores with fork/join
+   *  -Throws "IllegalArgumentException" if the arrays differ in length or any
+   *   noun is not in the WordNet
+   * 
+   * @param Similarity measure and 2 String arrays where nouns1[i] and 
+   *        nouns2[i] form pair i
+   * @return double array where element i is the score of pair i
+   */
+  public double[] similarities( ShortestCommonAncestor.Similarity measure, String[] nouns1, String[] nouns2 ) {
+    if ( measure == null ) throw new NullPointerException();
+    checkPairs( nouns1, nouns2 );
+    double[] scores = new double[nouns1.length];
+    ParallelBatch.forEach( nouns1.length, i -> scores[i] = similarity( measure, nouns1[i], nouns2[i] ) );
+    return scores;
+  }
+  
+  private static void checkPairs( String[] nouns1, String[] nouns2 ) {
+    if ( nouns1 == null || nouns2 == null ) throw new NullPointerException();
+    if ( nouns1.length != nouns2.length ) 
+      throw new IllegalArgumentException( "noun arrays differ in length" );
+  }
+  
+  /* Method for returning a synset as a string of space separated nouns
+   * 
+   * @param int variable representing a synset id
+   * @return String object representing the synset
+   */
+  public String synset( int id ) {
+    validateSynset( id );
+    return synsetOf( id );
+  }
+  
+  private String synsetOf( int id ) {
+    Additions added = additions;
+    if ( added != null ) {
+      String synset = added.synsets.get( id );
+      if ( synset != null ) return synset;
+    }
+    return synsets.get( id );
+  }
+  
+  private void validateSynset( int id ) {
+    if ( id < 0 || id >= SCA.graph().V() ) throw new IllegalArgumentException( "synset " + id + " is not in the WordNet" );
+  }
+  
+  /* Method for adding a synset (and its hypernym edges) at runtime
+   *  -The synset gets the next unused id; each of its nouns is added to the
+   *   noun dictionary, or gets the new id if it is already a noun
+   *  -Queries keep being served while the update is applied: the graph is
+   *   copied on write; the synset's string is published before the graph
+   *   (so any reader that can reach the new vertex can also print it) and
+   *   the nouns after it (so a reader that finds a noun can also search it)
+   *  -A new synset has no hyponyms, so no cached result or index entry is
+   *   affected by it
+   *  -Throws "IllegalArgumentException" if a noun is empty or no hypernym
+   *   is given or a hypernym is not a synset
+   * 
+   * @param String of space separated nouns (as in synsets.txt) and the ids
+   *        of the synset's hypernyms
+   * @return int variable representing the id of the new synset
+   */
+  public synchronized int addSynset( String nouns, int... hypernyms ) {
+    if ( nouns == null || hypernyms == null ) throw new NullPointerException();
+    String[] words = nouns.split( " ", -1 );
+    for ( String word : words ) {
+      if ( word.isEmpty() ) throw new IllegalArgumentException( "Malformed noun list \"" + nouns + "\"" );
+    }
+    if ( hypernyms.length == 0 ) throw new IllegalArgumentException( "A synset needs at least one hypernym" );
+    for ( int hypernym : hypernyms ) {
+      validateSynset( hypernym );
+    }
+    // Updates only go through this lock, so the new vertex gets this id
+    int id = SCA.graph().V();
+    Additions added = new Additions( additions );
+    added.synsets.put( id, nouns );
+    additions = added;
+    SCA.addVertex( hypernyms );
+    added = new Additions( added );
+    for ( String word : words ) {
+      addId( added, word, id );
+    }
+    additions = added;
+    return id;
+  }
+  
+  /* Method for adding a noun to an existing synset at runtime
+   *  -Does nothing if the noun is already in the synset
+   *  -Throws "IllegalArgumentException" if the noun is empty or has a space
+   *   or the synset does not exist
+   * 
+   * @param String object "noun" and the id of the synset
+   */
+  public synchronized void addNoun( String noun, int synsetID ) {
+    if ( noun == null ) throw new NullPointerException();
+    if ( noun.isEmpty() || noun.indexOf( ' ' ) >= 0 ) 
+      throw new IllegalArgumentException( "Malformed noun \"" + noun + "\"" );
+    validateSynset( synsetID );
+    Additions added = new Additions( additions );
+    if ( !addId( added, noun, synsetID ) ) return;
+    added.synsets.put( synsetID, synsetOf( synsetID ) + " " + noun );
+    additions = added;
+  }
+  
+  /* Method for adding the hypernym edge synsetID->hypernymID at runtime
+   *  -Only the synset and its hyponyms get new ancestral paths, so only the
+   *   cached results involving one of them are dropped; the distance labels
+   *   (if built) are rebuilt the next time they are needed
+   *  -Throws "IllegalArgumentException" if either synset does not exist or
+   *   the edge would create a cycle
+   * 
+   * @param 2 int variables representing synset ids
+   */
+  public synchronized void addHypernym( int synsetID, int hypernymID ) {
+    int[] affected = SCA.addEdge( synsetID, hypernymID );
+    if ( cache == null || affected.length == 0 ) return;
+    boolean[] reached = new boolean[SCA.graph().V()];
+    for ( int id : affected ) {
+      reached[id] = true;
+    }
+    cache.invalidate( id -> id < reached.length && reached[id] );
+  }
+  
+  // Gives a noun one more synset id in "added" (keeping the ids sorted);
+  // returns false if the noun already had it
+  private boolean addId( Additions added, String noun, int id ) {
+    int[] ids = added.nouns.get( noun );
+    if ( ids == null ) {
+      int ordinal = nounIndex.indexOf( noun );
+      if ( ordinal >= 0 ) ids = nounIndex.synsetIDs( ordinal );
+      else {
+        ids = new int[0];
+        added.newNouns.add( noun );
       }
     }
+    int at = Arrays.binarySearch( ids, id );
+    if ( at >= 0 ) return false;
+    at = -at - 1;
+    int[] merged = new int[ids.length + 1];
+    System.arraycopy( ids, 0, merged, 0, at );
+    merged[at] = id;
+    System.arraycopy( ids, at, merged, at + 1, ids.length - at );
+    added.nouns.put( noun, merged );
+    return true;
+  }
+  
+  //Returns ShortestCommonAncestor object
+  public ShortestCommonAncestor getSCA() {
+    return SCA;
+  }
+  
+  //Returns the latency, BFS work and load phase metrics (shared with the
+  //ShortestCommonAncestor object; disabled until setEnabled( true ))
+  public QueryMetrics getMetrics() {
+    return SCA.getMetrics();
+  }
+  
+  //Returns the result cache with its hit/miss/eviction counters (null if
+  //the WordNet was built without one)
+  public QueryCache getCache() {
+    return cache;
+  }
+  
+  // Synsets and noun dictionary (used when writing a snapshot); additions
+  // are folded into new ones
+  StringArena synsetArena() {
+    if ( additions == null ) return synsets;
+    String[] all = new String[SCA.graph().V()];
+    for ( int id = 0; id < all.length; id++ ) {
+      all[id] = synsetOf( id );
+    }
+    return StringArena.of( all );
+  }
+  
+  NounIndex nounIndex() {
+    if ( additions == null ) return nounIndex;
+    StringArena all = synsetArena();
+    int nounCount = 0;
+    for ( int id = 0; id < all.size(); id++ ) {
+      nounCount += all.get( id ).split( " " ).length;
+    }
+    return NounIndex.build( all, nounCount );
+  }
+  
+  // Method for getting the Synset ids of a noun from the noun dictionary
+  public Iterable<Integer> synsetIDs( String noun ) {
+    LinkedList<Integer> synsetIDs = new LinkedList<Integer>();
+    for ( int id : idsOf( noun ) ) {
+      synsetIDs.add( id );
+    }
     return synsetIDs;
   }
   
+  /* Method for looking up the Synset ids of a noun with a single probe
+   *  -Throws "IllegalArgumentException" if the noun is not in the WordNet
+   * 
+   * @param String object "noun"
+   * @return int array of the noun's synset ids
+   */
+  int[] idsOf( String noun ) {
+    Additions added = additions;
+    if ( added != null ) {
+      int[] ids = added.nouns.get( noun );
+      if ( ids != null ) return ids.clone();
+    }
+    int ordinal = nounIndex.indexOf( noun );
+    if ( ordinal < 0 ) throw new IllegalArgumentException( "Noun not in WordNet" );
+    return nounIndex.synsetIDs( ordinal );
+  }
+  
+  // Synsets and nouns added after loading; never changed once published 
+  // (every update copies it)
+  private static class Additions {
+    // New or changed synsets by id
+    private final HashMap<Integer, String> synsets;
+    // New or extended nouns with all of their synset ids
+    private final HashMap<String, int[]> nouns;
+    // Nouns the loaded dictionary does not have, in the order they came
+    private final ArrayList<String> newNouns;
+    
+    Additions( Additions copy ) {
+      synsets = copy == null ? new HashMap<Integer, String>() : new HashMap<Integer, String>( copy.synsets );
+      nouns = copy == null ? new HashMap<String, int[]>() : new HashMap<String, int[]>( copy.nouns );
+      newNouns = copy == null ? new ArrayList<String>() : new ArrayList<String>( copy.newNouns );
+    }
+  }
+  
+  //Immutable pair of a shortest common ancestor synset and the distance
+  public static class SCAResult {
+    private final String sca;
+    private final int distance;
+    
+    public SCAResult( String sca, int distance ) {
+      this.sca = sca;
+      this.distance = distance;
+    }
+    
+    public String sca() {
+      return sca;
+    }
+    
+    public int distance() {
+      return distance;
+    }
+  }
+  
+  //Immutable pair of a noun and its distance (see nearest)
+  public static class Neighbor {
+    private final String noun;
+    private final int distance;
+    
+    public Neighbor( String noun, int distance ) {
+      this.noun = noun;
+      this.distance = distance;
+    }
+    
+    public String noun() {
+      return noun;
+    }
+    
+    public int distance() {
+      return distance;
+    }
+    
+    @Override
+    public String toString() {
+      return noun + " (" + distance + ")";
+    }
+  }
+  
   // Testing Driver
   public static void main( String[] args ) {
     WordNet wn = new WordNet( "synsets.txt", "hypernyms.txt" );
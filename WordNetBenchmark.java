@@ -0,0 +1,290 @@
+/******************************************************************************
+ * Compilation:  javac WordNetBenchmark.java
+ * Execution:    java WordNetBenchmark synsets.txt hypernyms.txt 
+ *                 [-warmup N] [-iterations N] [-time ms] 
+ *                 [-save results.txt] [-compare results.txt] [-tolerance %]
+ * Dependencies: WordNet.java, Outcast.java
+ * ----------------------------------------------------------------------------
+ * Microbenchmark driver for the WordNet library, run against the bundled 
+ * hypernyms.txt and a synsets file. Every benchmark is run for a number of 
+ * timed warmup iterations (results discarded) followed by measured ones and
+ * reports:
+ *   -throughput in operations per second (mean +- standard deviation)
+ *   -allocation in bytes per operation, summed over the allocation 
+ *    counters of all live threads, so the work an operation hands to other
+ *    threads (the loader's hypernym parser, Outcast's fork/join workers) is
+ *    counted too; a thread that ends during an iteration takes its count 
+ *    with it, so the figure is a lower bound in that case (e.g. on a 
+ *    single core, where the hypernym parser gets a thread of its own)
+ * 
+ * Benchmarks: text and snapshot construction, isNoun/synsetIDs lookups, 
+ * distance/sca on near, far and multi-sense noun pairs (picked from the 
+ * loaded data with a fixed seed, so any synsets file works) and outcast on
+ * the fruit list from Outcast.main.
+ * 
+ * "-save" writes the throughputs to a file; "-compare" reads such a file and
+ * exits with status 1 if any benchmark got slower by more than the tolerance
+ * (default 10%), so it can gate regressions locally.
+ * 
+ * (JMH is not used because it refuses to generate benchmarks for classes in 
+ * the default package, which is where every class of this project lives.)
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import edu.princeton.cs.algs4.StdOut;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+
+public class WordNetBenchmark {
+  
+  private static final String[] FRUITS = { "apple","pear","peach","banana","lime","lemon","blueberry","strawberry","mango","watermelon","potato" };
+  private static final int PAIRS = 64;
+  
+  // Keeps results alive so the JIT cannot remove the benchmarked calls
+  private static volatile int sink;
+  
+  private final int warmup;
+  private final int iterations;
+  private final long iterationNanos;
+  private final com.sun.management.ThreadMXBean threads;
+  private final Map<String, Double> throughputs = new LinkedHashMap<String, Double>();
+  
+  public WordNetBenchmark( int warmup, int iterations, long iterationMillis ) {
+    this.warmup = warmup;
+    this.iterations = iterations;
+    this.iterationNanos = iterationMillis * 1000000L;
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if ( bean instanceof com.sun.management.ThreadMXBean 
+          && ( ( com.sun.management.ThreadMXBean ) bean ).isThreadAllocatedMemorySupported() ) {
+      threads = ( com.sun.management.ThreadMXBean ) bean;
+      threads.setThreadAllocatedMemoryEnabled( true );
+    }
+    else threads = null;
+  }
+  
+  /* Method for running one benchmark and printing its line of the report
+   *  -Each call of "op" counts as "opsPerCall" operations (for benchmarks
+   *   that walk a batch of pairs per call)
+   * 
+   * @param name of the benchmark, operations per call and the operation
+   */
+  public void run( String name, int opsPerCall, IntSupplier op ) {
+    for ( int i = 0; i < warmup; i++ ) {
+      iteration( opsPerCall, op );
+    }
+    double[] opsPerSecond = new double[iterations];
+    double bytesPerOp = 0;
+    for ( int i = 0; i < iterations; i++ ) {
+      double[] result = iteration( opsPerCall, op );
+      opsPerSecond[i] = result[0];
+      bytesPerOp += result[1] / iterations;
+    }
+    double mean = 0;
+    for ( double x : opsPerSecond ) mean += x / iterations;
+    double variance = 0;
+    for ( double x : opsPerSecond ) variance += ( x - mean ) * ( x - mean ) / Math.max( 1, iterations - 1 );
+    
+    throughputs.put( name, mean );
+    StdOut.println( String.format( "%-32s %14.1f +- %10.1f ops/s %12s B/op", name, mean, Math.sqrt( variance ),
+                                   threads == null ? "n/a" : String.format( "%.1f", bytesPerOp ) ) );
+  }
+  
+  // Calls "op" until the iteration time is up; returns { ops/s, bytes/op }
+  private double[] iteration( int opsPerCall, IntSupplier op ) {
+    long bytesBefore = allocatedBytes();
+    long calls = 0;
+    int acc = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      acc += op.getAsInt();
+      calls++;
+      elapsed = System.nanoTime() - start;
+    } while ( elapsed < iterationNanos );
+    long bytes = allocatedBytes() - bytesBefore;
+    sink += acc;
+    double ops = ( double ) calls * opsPerCall;
+    return new double[] { ops / ( elapsed / 1e9 ), bytes / ops };
+  }
+  
+  // Bytes allocated so far by all live threads (0 if not supported)
+  private long allocatedBytes() {
+    if ( threads == null ) return 0;
+    long total = 0;
+    for ( long bytes : threads.getThreadAllocatedBytes( threads.getAllThreadIds() ) ) {
+      if ( bytes > 0 ) total += bytes;
+    }
+    return total;
+  }
+  
+  //Writes "name throughput" lines for a later -compare
+  public void save( String file ) throws IOException {
+    try ( PrintWriter out = new PrintWriter( file ) ) {
+      for ( Map.Entry<String, Double> e : throughputs.entrySet() ) {
+        out.println( e.getKey() + " " + e.getValue() );
+      }
+    }
+  }
+  
+  /* Method for comparing this run against a saved one
+   * 
+   * @param saved results file and the allowed slowdown in percent
+   * @return Boolean value based off if no benchmark regressed
+   */
+  public boolean compare( String file, double tolerance ) throws IOException {
+    boolean ok = true;
+    for ( String line : Files.readAllLines( Paths.get( file ) ) ) {
+      String[] fields = line.trim().split( " " );
+      if ( fields.length != 2 || !throughputs.containsKey( fields[0] ) ) continue;
+      double before = Double.parseDouble( fields[1] );
+      double change = 100 * ( throughputs.get( fields[0] ) - before ) / before;
+      boolean regressed = change < -tolerance;
+      ok &= !regressed;
+      StdOut.println( String.format( "%-32s %+7.1f%% %s", fields[0], change, regressed ? "REGRESSION" : "" ) );
+    }
+    return ok;
+  }
+  
+  /* Picks noun pairs for the distance/sca benchmarks with a fixed seed
+   *  -near: a noun and another noun of one of its hypernym synsets
+   *  -far: the farthest apart of a sample of random pairs
+   *  -multi: pairs of the nouns with the most synsets
+   */
+  private static String[][] pairs( WordNet wn, String kind ) {
+    List<String> nouns = new ArrayList<String>();
+    for ( String noun : wn.nouns() ) nouns.add( noun );
+    Random random = new Random( 42 );
+    String[][] pairs = new String[2][PAIRS];
+    if ( kind.equals( "multi" ) ) {
+      nouns.sort( ( a, b ) -> wn.idsOf( b ).length - wn.idsOf( a ).length );
+      for ( int i = 0; i < PAIRS; i++ ) {
+        pairs[0][i] = nouns.get( i % 16 );
+        pairs[1][i] = nouns.get( 16 + random.nextInt( 32 ) );
+      }
+      return pairs;
+    }
+    int[] best = new int[PAIRS];
+    for ( int i = 0; i < PAIRS; i++ ) {
+      if ( kind.equals( "near" ) ) {
+        String noun = nouns.get( random.nextInt( nouns.size() ) );
+        String hypernym = nearby( wn, noun, random );
+        pairs[0][i] = noun;
+        pairs[1][i] = hypernym == null ? noun : hypernym;
+      }
+      else {
+        for ( int tries = 0; tries < 50; tries++ ) {
+          String a = nouns.get( random.nextInt( nouns.size() ) );
+          String b = nouns.get( random.nextInt( nouns.size() ) );
+          int d = wn.distance( a, b );
+          if ( d > best[i] ) {
+            best[i] = d;
+            pairs[0][i] = a;
+            pairs[1][i] = b;
+          }
+        }
+      }
+    }
+    return pairs;
+  }
+  
+  // A noun of a hypernym synset of "noun" (null if it has none)
+  private static String nearby( WordNet wn, String noun, Random random ) {
+    ShortestCommonAncestor sca = wn.getSCA();
+    int[] ids = wn.idsOf( noun );
+    ShortestCommonAncestor.AncestorSet ancestors = sca.ancestors( new int[] { ids[random.nextInt( ids.length )] } );
+    for ( int i = 0; i < ancestors.size(); i++ ) {
+      if ( ancestors.distance( i ) == 1 ) return wn.synset( ancestors.vertex( i ) ).split( " " )[0];
+    }
+    return null;
+  }
+  
+  // Benchmark Driver
+  public static void main( String[] args ) throws IOException {
+    if ( args.length < 2 ) {
+      StdOut.println( "usage: java WordNetBenchmark synsets.txt hypernyms.txt [-warmup N] [-iterations N] [-time ms]"
+                        + " [-save file] [-compare file] [-tolerance %]" );
+      return;
+    }
+    String synsets = args[0];
+    String hypernyms = args[1];
+    int warmup = 3;
+    int iterations = 5;
+    long time = 1000;
+    String save = null;
+    String compare = null;
+    double tolerance = 10;
+    for ( int i = 2; i + 1 < args.length; i += 2 ) {
+      switch ( args[i] ) {
+        case "-warmup": warmup = Integer.parseInt( args[i + 1] ); break;
+        case "-iterations": iterations = Integer.parseInt( args[i + 1] ); break;
+        case "-time": time = Long.parseLong( args[i + 1] ); break;
+        case "-save": save = args[i + 1]; break;
+        case "-compare": compare = args[i + 1]; break;
+        case "-tolerance": tolerance = Double.parseDouble( args[i + 1] ); break;
+        default: throw new IllegalArgumentException( "unknown option " + args[i] );
+      }
+    }
+    
+    WordNetBenchmark bench = new WordNetBenchmark( warmup, iterations, time );
+    WordNet wn = new WordNet( synsets, hypernyms );
+    File snapshot = File.createTempFile( "wordnet", ".snap" );
+    snapshot.deleteOnExit();
+    wn.writeSnapshot( snapshot.getPath() );
+    
+    bench.run( "load.text", 1, () -> new WordNet( synsets, hypernyms ).getSCA().hashCode() );
+    bench.run( "load.snapshot", 1, () -> WordNet.fromSnapshot( snapshot.getPath() ).getSCA().hashCode() );
+    
+    String[][] near = pairs( wn, "near" );
+    String[][] far = pairs( wn, "far" );
+    String[][] multi = pairs( wn, "multi" );
+    String[] lookups = near[0];
+    bench.run( "lookup.isNoun", PAIRS, () -> {
+      int hits = 0;
+      for ( String noun : lookups ) if ( wn.isNoun( noun ) ) hits++;
+      return hits;
+    } );
+    bench.run( "lookup.synsetIDs", PAIRS, () -> {
+      int count = 0;
+      for ( String noun : lookups ) for ( int id : wn.synsetIDs( noun ) ) count += id;
+      return count;
+    } );
+    
+    String[] kinds = { "near", "far", "multi" };
+    String[][][] sets = { near, far, multi };
+    for ( int k = 0; k < kinds.length; k++ ) {
+      String[][] p = sets[k];
+      bench.run( "distance." + kinds[k], PAIRS, () -> {
+        int total = 0;
+        for ( int i = 0; i < PAIRS; i++ ) total += wn.distance( p[0][i], p[1][i] );
+        return total;
+      } );
+      bench.run( "sca." + kinds[k], PAIRS, () -> {
+        int total = 0;
+        for ( int i = 0; i < PAIRS; i++ ) total += wn.sca( p[0][i], p[1][i] ).length();
+        return total;
+      } );
+    }
+    
+    List<String> fruits = new ArrayList<String>();
+    for ( String fruit : FRUITS ) if ( wn.isNoun( fruit ) ) fruits.add( fruit );
+    if ( fruits.size() > 1 ) {
+      Outcast outcast = new Outcast( wn );
+      String[] list = fruits.toArray( new String[0] );
+      bench.run( "outcast.fruits", 1, () -> outcast.outcast( list ).length() );
+    }
+    
+    if ( save != null ) bench.save( save );
+    if ( compare != null && !bench.compare( compare, tolerance ) ) System.exit( 1 );
+  }
+}
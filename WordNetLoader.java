@@ -0,0 +1,360 @@
+/******************************************************************************
+ * Compilation:  javac WordNetLoader.java
+ * Dependencies: StringArena.java
+ * ----------------------------------------------------------------------------
+ * Streaming parser for the synsets and hypernyms text files. Both files are
+ * read in fixed-size chunks through a FileChannel and parsed byte by byte by
+ * a small state machine, so no String, String[] or boxed Integer is created
+ * per line:
+ *   -synsets:   "id,noun noun ...,gloss" - the noun field is copied straight
+ *               into the UTF-8 bytes of a StringArena
+ *   -hypernyms: "v,w1,w2,..." - the edges go into primitive arrays which are
+ *               then turned into a compressed-sparse-row adjacency
+ * The two files are parsed concurrently.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+
+public class WordNetLoader {
+  
+  private static final int CHUNK = 1 << 16;
+  
+  private StringArena synsets;
+  private int nounCount;
+  private int[] adjOffsets;
+  private int[] adjTargets;
+  private int root;
+  // Time spent in each phase in nanoseconds
+  private long synsetsNanos;
+  private long hypernymsNanos;
+  private long graphNanos;
+  
+  private WordNetLoader() { }
+  
+  /* Method for parsing a synsets file and a hypernyms file
+   *  -The hypernyms file is parsed on another thread while this thread 
+   *   parses the synsets file
+   *  -Throws "IllegalArgumentException" if a file cannot be read, a line is
+   *   malformed, an edge names an unknown synset id or there is no root
+   * 
+   * @param 2 String variables representing the files
+   * @return WordNetLoader object holding the parsed synsets and graph
+   */
+  public static WordNetLoader load( String synsets, String hypernyms ) {
+    CompletableFuture<EdgeList> edges = CompletableFuture.supplyAsync( () -> parseHypernyms( hypernyms ) );
+    WordNetLoader loader = new WordNetLoader();
+    try {
+      long start = System.nanoTime();
+      loader.parseSynsets( synsets );
+      loader.synsetsNanos = System.nanoTime() - start;
+    }
+    finally {
+      if ( loader.synsets == null ) edges.cancel( false );
+    }
+    EdgeList edgeList;
+    try {
+      edgeList = edges.join();
+    }
+    catch ( CompletionException e ) {
+      if ( e.getCause() instanceof RuntimeException ) throw ( RuntimeException ) e.getCause();
+      throw e;
+    }
+    loader.hypernymsNanos = edgeList.nanos;
+    long start = System.nanoTime();
+    loader.buildGraph( edgeList, hypernyms );
+    loader.graphNanos = System.nanoTime() - start;
+    return loader;
+  }
+  
+  //Returns the synsets indexed by id
+  public StringArena synsets() {
+    return synsets;
+  }
+  
+  //Returns the total amount of nouns over all synsets
+  public int nounCount() {
+    return nounCount;
+  }
+  
+  //Returns the hypernym graph in compressed-sparse-row form
+  public int[] adjOffsets() {
+    return adjOffsets;
+  }
+  
+  public int[] adjTargets() {
+    return adjTargets;
+  }
+  
+  //Returns the synset without hypernyms
+  public int root() {
+    return root;
+  }
+  
+  /* Method for copying the time spent in each load phase into metrics
+   *  (the two parse phases overlap since they run concurrently)
+   * 
+   * @param QueryMetrics object to record the phases in
+   */
+  public void recordLoadPhases( QueryMetrics metrics ) {
+    metrics.recordLoadPhase( "parse.synsets", synsetsNanos );
+    metrics.recordLoadPhase( "parse.hypernyms", hypernymsNanos );
+    metrics.recordLoadPhase( "graph.build", graphNanos );
+  }
+  
+  /* Parses the synsets file into a StringArena indexed by synset id
+   *  -Field 0 is parsed as an int, field 1 is copied byte for byte and the
+   *   rest of the line (the gloss, which may contain commas) is skipped
+   *  -Lines may list ids in any order as long as they are exactly 0 .. V-1
+   */
+  private void parseSynsets( String file ) {
+    byte[] bytes = new byte[CHUNK];
+    int byteCount = 0;
+    int[] ids = new int[1024];
+    int[] ends = new int[1025];
+    int lines = 0;
+    
+    int field = 0;
+    int id = 0;
+    boolean digits = false;
+    int lineNumber = 1;
+    boolean inOrder = true;
+    
+    try ( FileChannel channel = FileChannel.open( Paths.get( file ), StandardOpenOption.READ ) ) {
+      ByteBuffer chunk = ByteBuffer.allocate( CHUNK + 1 );
+      boolean eof = false;
+      while ( !eof ) {
+        chunk.clear().limit( CHUNK );
+        eof = channel.read( chunk ) < 0;
+        chunk.flip();
+        int limit = chunk.limit();
+        // A final newline terminates a last line that has none
+        if ( eof ) {
+          chunk.limit( limit + 1 );
+          chunk.put( limit++, ( byte ) '\n' );
+        }
+        for ( int i = 0; i < limit; i++ ) {
+          byte b = chunk.get( i );
+          if ( b == '\r' ) continue;
+          if ( b == '\n' ) {
+            if ( field == 0 && !digits ) {
+              lineNumber++;
+              continue;
+            }
+            if ( field == 0 ) throw malformed( file, lineNumber, "expected \"id,nouns,gloss\"" );
+            if ( byteCount == ends[lines] ) throw malformed( file, lineNumber, "synset has no nouns" );
+            if ( lines == ids.length ) {
+              ids = Arrays.copyOf( ids, 2 * lines );
+              ends = Arrays.copyOf( ends, 2 * lines + 1 );
+            }
+            if ( id != lines ) inOrder = false;
+            ids[lines++] = id;
+            ends[lines] = byteCount;
+            field = 0;
+            id = 0;
+            digits = false;
+            lineNumber++;
+          }
+          else if ( field == 0 ) {
+            if ( b == ',' ) {
+              if ( !digits ) throw malformed( file, lineNumber, "missing synset id" );
+              field = 1;
+            }
+            else if ( b >= '0' && b <= '9' ) {
+              if ( id > ( Integer.MAX_VALUE - 9 ) / 10 ) throw malformed( file, lineNumber, "number out of range" );
+              id = 10 * id + ( b - '0' );
+              digits = true;
+            }
+            else throw malformed( file, lineNumber, "synset id is not a number" );
+          }
+          else if ( field == 1 ) {
+            if ( b == ',' ) {
+              field = 2;
+              continue;
+            }
+            // Counts the first noun and every space separated one after it
+            if ( b == ' ' || byteCount == ends[lines] ) nounCount++;
+            if ( byteCount == bytes.length ) bytes = Arrays.copyOf( bytes, 2 * byteCount );
+            bytes[byteCount++] = b;
+          }
+        }
+      }
+    }
+    catch ( IOException e ) {
+      throw new IllegalArgumentException( "Could not read " + file, e );
+    }
+    
+    // Puts the synsets in id order if the file did not list them that way
+    int[] offsets = new int[lines + 1];
+    if ( inOrder ) {
+      System.arraycopy( ends, 0, offsets, 0, lines + 1 );
+    }
+    else {
+      int[] lineOf = new int[lines];
+      Arrays.fill( lineOf, -1 );
+      for ( int line = 0; line < lines; line++ ) {
+        if ( ids[line] >= lines || lineOf[ids[line]] >= 0 ) 
+          throw new IllegalArgumentException( file + ": synset ids must be 0 to " + ( lines - 1 ) + " without repeats" );
+        lineOf[ids[line]] = line;
+      }
+      byte[] sorted = new byte[byteCount];
+      for ( int v = 0; v < lines; v++ ) {
+        int line = lineOf[v];
+        int length = ends[line + 1] - ends[line];
+        System.arraycopy( bytes, ends[line], sorted, offsets[v], length );
+        offsets[v + 1] = offsets[v] + length;
+      }
+      bytes = sorted;
+    }
+    synsets = new StringArena( ByteBuffer.wrap( bytes, 0, byteCount ).slice(), IntBuffer.wrap( offsets ) );
+  }
+  
+  /* Parses the hypernyms file into parallel arrays of edge endpoints
+   *  -Each line is a comma separated list of ints: a synset followed by its
+   *   hypernyms
+   *  -A line without hypernyms only records the synset (as a root candidate)
+   */
+  private static EdgeList parseHypernyms( String file ) {
+    long start = System.nanoTime();
+    EdgeList edges = new EdgeList();
+    int field = 0;
+    int value = 0;
+    boolean digits = false;
+    int v = 0;
+    int lineNumber = 1;
+    
+    try ( FileChannel channel = FileChannel.open( Paths.get( file ), StandardOpenOption.READ ) ) {
+      ByteBuffer chunk = ByteBuffer.allocate( CHUNK + 1 );
+      boolean eof = false;
+      while ( !eof ) {
+        chunk.clear().limit( CHUNK );
+        eof = channel.read( chunk ) < 0;
+        chunk.flip();
+        int limit = chunk.limit();
+        // A final newline terminates a last line that has none
+        if ( eof ) {
+          chunk.limit( limit + 1 );
+          chunk.put( limit++, ( byte ) '\n' );
+        }
+        for ( int i = 0; i < limit; i++ ) {
+          byte b = chunk.get( i );
+          if ( b == '\r' ) continue;
+          if ( b >= '0' && b <= '9' ) {
+            if ( value > ( Integer.MAX_VALUE - 9 ) / 10 ) throw malformed( file, lineNumber, "number out of range" );
+            value = 10 * value + ( b - '0' );
+            digits = true;
+          }
+          else if ( b == ',' || b == '\n' ) {
+            if ( b == '\n' && field == 0 && !digits ) {
+              lineNumber++;
+              continue;
+            }
+            if ( !digits ) throw malformed( file, lineNumber, "empty synset id" );
+            if ( field == 0 ) {
+              v = value;
+              edges.addVertex( v, lineNumber );
+            }
+            else {
+              edges.addEdge( v, value, lineNumber );
+            }
+            field = b == ',' ? field + 1 : 0;
+            value = 0;
+            digits = false;
+            if ( b == '\n' ) lineNumber++;
+          }
+          else throw malformed( file, lineNumber, "synset id is not a number" );
+        }
+      }
+    }
+    catch ( IOException e ) {
+      throw new IllegalArgumentException( "Could not read " + file, e );
+    }
+    edges.nanos = System.nanoTime() - start;
+    return edges;
+  }
+  
+  /* Turns the parsed edges into the compressed-sparse-row adjacency
+   *  -Counts the out-degrees, prefix sums them into offsets and then places
+   *   every edge (a counting sort by source vertex)
+   *  -The root is the one synset without hypernyms
+   */
+  private void buildGraph( EdgeList edges, String file ) {
+    int V = synsets.size();
+    adjOffsets = new int[V + 1];
+    for ( int i = 0; i < edges.size; i++ ) {
+      checkVertex( edges.from[i], V, file, edges.line[i] );
+      checkVertex( edges.to[i], V, file, edges.line[i] );
+      adjOffsets[edges.from[i] + 1]++;
+    }
+    for ( int i = 0; i < edges.vertexCount; i++ ) {
+      checkVertex( edges.vertices[i], V, file, edges.vertexLine[i] );
+    }
+    for ( int v = 0; v < V; v++ ) {
+      adjOffsets[v + 1] += adjOffsets[v];
+    }
+    adjTargets = new int[edges.size];
+    int[] next = Arrays.copyOf( adjOffsets, V );
+    for ( int i = 0; i < edges.size; i++ ) {
+      adjTargets[next[edges.from[i]]++] = edges.to[i];
+    }
+    
+    root = -1;
+    for ( int v = 0; v < V; v++ ) {
+      if ( adjOffsets[v] == adjOffsets[v + 1] ) {
+        if ( root >= 0 ) 
+          throw new IllegalArgumentException( file + ": synsets " + root + " and " + v + " both have no hypernyms (more than one root)" );
+        root = v;
+      }
+    }
+    if ( root < 0 ) throw new IllegalArgumentException( file + ": every synset has a hypernym (no root)" );
+  }
+  
+  private static void checkVertex( int v, int V, String file, int lineNumber ) {
+    if ( v >= V ) throw malformed( file, lineNumber, v + " is not a synset id" );
+  }
+  
+  private static IllegalArgumentException malformed( String file, int lineNumber, String reason ) {
+    return new IllegalArgumentException( file + " line " + lineNumber + ": " + reason );
+  }
+  
+  // Growable parallel arrays of the edges (and line numbers for errors)
+  private static class EdgeList {
+    int[] from = new int[1024];
+    int[] to = new int[1024];
+    int[] line = new int[1024];
+    int size;
+    int[] vertices = new int[1024];
+    int[] vertexLine = new int[1024];
+    int vertexCount;
+    long nanos;
+    
+    void addEdge( int v, int w, int lineNumber ) {
+      if ( size == from.length ) {
+        from = Arrays.copyOf( from, 2 * size );
+        to = Arrays.copyOf( to, 2 * size );
+        line = Arrays.copyOf( line, 2 * size );
+      }
+      from[size] = v;
+      to[size] = w;
+      line[size++] = lineNumber;
+    }
+    
+    void addVertex( int v, int lineNumber ) {
+      if ( vertexCount == vertices.length ) {
+        vertices = Arrays.copyOf( vertices, 2 * vertexCount );
+        vertexLine = Arrays.copyOf( vertexLine, 2 * vertexCount );
+      }
+      vertices[vertexCount] = v;
+      vertexLine[vertexCount++] = lineNumber;
+    }
+  }
+}
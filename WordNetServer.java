@@ -0,0 +1,449 @@
+/******************************************************************************
+ * Compilation:  javac WordNetServer.java
+ * Execution:    java WordNetServer (synsets.txt hypernyms.txt | -snapshot file)
+ *                 [-port N] [-batch N] [-dispatchers N] [-cache N] [-metrics]
+ * Dependencies: WordNet.java, Outcast.java, QueryMetrics.java
+ * ----------------------------------------------------------------------------
+ * Small query server that lets several processes on one host share a single
+ * loaded WordNet. It listens on the loopback interface only and speaks a
+ * line protocol (one request per line, words separated by spaces or tabs,
+ * one reply line per request in the same order):
+ * 
+ *   DISTANCE noun1 noun2        ->  OK <distance>
+ *   SCA noun1 noun2             ->  OK <synset>
+ *   OUTCAST noun1 noun2 ...     ->  OK <noun>
+ *   HEALTH                      ->  OK UP <uptime ms> <synsets> synsets
+ *   METRICS                     ->  OK <server counters> <QueryMetrics>
+ *                                   (query metrics only with -metrics)
+ *   QUIT                        ->  (closes the connection)
+ * 
+ * A request that cannot be answered gets "ERR <reason>" instead.
+ * 
+ * Every connection is served by its own virtual thread (on a JVM that has
+ * them, a pooled platform thread otherwise). Connection threads do not run
+ * queries themselves: DISTANCE/SCA/OUTCAST requests are put on one queue,
+ * and a few dispatcher threads drain it into micro-batches of up to "-batch"
+ * requests. Identical requests in a batch are answered once, the rest are
+ * grouped by command and answered with one batch query per command
+ * (WordNet.distances, WordNet.scaAndDistances, Outcast.outcast), and the
+ * waiting connection threads are woken with their replies.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+public class WordNetServer implements Closeable {
+  
+  private final WordNet wordnet;
+  private final Outcast outcast;
+  private final ServerSocket socket;
+  private final int maxBatch;
+  private final int dispatchers;
+  private final ExecutorService connections;
+  private final BlockingQueue<Request> requests = new LinkedBlockingQueue<Request>();
+  private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+  private final List<Thread> threads = new ArrayList<Thread>();
+  private final long startMillis = System.currentTimeMillis();
+  private volatile boolean running;
+  
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder served = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  
+  /* Constructor for WordNetServer object
+   *  -Binds the loopback interface right away (port 0 picks a free port,
+   *   see port()); nothing is served until start()
+   *  -Leaves the WordNet's query metrics as they are: METRICS only shows
+   *   query timings if the caller enabled them
+   * 
+   * @param WordNet to serve, port, the largest micro-batch and the amount
+   *        of dispatcher threads
+   */
+  public WordNetServer( WordNet wordnet, int port, int maxBatch, int dispatchers ) throws IOException {
+    if ( wordnet == null ) throw new NullPointerException();
+    if ( maxBatch <= 0 || dispatchers <= 0 )
+      throw new IllegalArgumentException( "batch and dispatchers must be positive" );
+    this.wordnet = wordnet;
+    this.outcast = new Outcast( wordnet );
+    this.maxBatch = maxBatch;
+    this.dispatchers = dispatchers;
+    this.socket = new ServerSocket( port, 128, InetAddress.getLoopbackAddress() );
+    this.connections = connectionExecutor();
+  }
+  
+  /* Method for getting one virtual thread per task where the JVM supports
+   * it (looked up by reflection so the code still compiles and runs on
+   * JVMs without virtual threads, which get a cached thread pool)
+   */
+  private static ExecutorService connectionExecutor() {
+    try {
+      return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+    }
+    catch ( ReflectiveOperationException e ) {
+      return Executors.newCachedThreadPool( r -> {
+        Thread thread = new Thread( r, "wordnet-server-connection" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+  }
+  
+  //Starts the accepting and dispatcher threads
+  public synchronized void start() {
+    if ( running ) return;
+    running = true;
+    for ( int i = 0; i < dispatchers; i++ ) {
+      threads.add( daemon( this::dispatch, "wordnet-server-dispatcher-" + i ) );
+    }
+    // The accepting thread is not a daemon: it keeps the JVM alive until
+    // close()
+    threads.add( thread( this::accept, "wordnet-server-accept", false ) );
+  }
+  
+  private static Thread daemon( Runnable body, String name ) {
+    return thread( body, name, true );
+  }
+  
+  private static Thread thread( Runnable body, String name, boolean daemon ) {
+    Thread thread = new Thread( body, name );
+    thread.setDaemon( daemon );
+    thread.start();
+    return thread;
+  }
+  
+  //Returns the port the server listens on
+  public int port() {
+    return socket.getLocalPort();
+  }
+  
+  //Stops accepting, closes every connection and stops the dispatchers
+  @Override
+  public synchronized void close() throws IOException {
+    running = false;
+    socket.close();
+    for ( Socket client : open ) {
+      client.close();
+    }
+    connections.shutdownNow();
+    for ( Thread thread : threads ) {
+      thread.interrupt();
+    }
+    Request failed;
+    while ( ( failed = requests.poll() ) != null ) {
+      failed.reply.complete( "ERR server closed" );
+    }
+  }
+  
+  private void accept() {
+    while ( running ) {
+      try {
+        Socket client = socket.accept();
+        accepted.increment();
+        open.add( client );
+        connections.execute( () -> serve( client ) );
+      }
+      catch ( IOException e ) {
+        if ( !running ) return;
+      }
+    }
+  }
+  
+  /* Method for serving one connection until the client closes it or QUITs
+   *  -Replies are flushed whenever no further request is already buffered,
+   *   so a client can pipeline requests without a flush per reply
+   */
+  private void serve( Socket client ) {
+    try ( Socket s = client;
+          BufferedReader in = new BufferedReader( new InputStreamReader( s.getInputStream(), StandardCharsets.UTF_8 ) );
+          Writer out = new BufferedWriter( new OutputStreamWriter( s.getOutputStream(), StandardCharsets.UTF_8 ) ) ) {
+      for ( String line = in.readLine(); line != null; line = in.readLine() ) {
+        String[] words = line.trim().split( "\\s+" );
+        String command = words[0].toUpperCase( Locale.ROOT );
+        if ( command.equals( "QUIT" ) ) break;
+        out.write( reply( command, words ) );
+        out.write( '\n' );
+        if ( !in.ready() ) out.flush();
+      }
+      out.flush();
+    }
+    catch ( SocketException e ) {
+      // Connection reset or closed by close()
+    }
+    catch ( IOException e ) {
+      // Nothing can be sent back on a broken connection
+    }
+    finally {
+      open.remove( client );
+    }
+  }
+  
+  // Answers one request line (queries go through the dispatchers)
+  private String reply( String command, String[] words ) {
+    switch ( command ) {
+      case "HEALTH":
+        return "OK UP " + ( System.currentTimeMillis() - startMillis ) + " " + wordnet.getSCA().graph().V() + " synsets";
+      case "METRICS":
+        return "OK " + stats() + " " + wordnet.getMetrics();
+      case "DISTANCE":
+      case "SCA":
+        if ( words.length != 3 ) return "ERR " + command + " needs 2 nouns";
+        return submit( command, words );
+      case "OUTCAST":
+        if ( words.length < 3 ) return "ERR OUTCAST needs at least 2 nouns";
+        return submit( command, words );
+      default:
+        return "ERR unknown command " + words[0];
+    }
+  }
+  
+  // Queues a query for the dispatchers and waits for its reply
+  private String submit( String command, String[] words ) {
+    String key = command + " " + String.join( " ", Arrays.copyOfRange( words, 1, words.length ) );
+    Request request = new Request( key, command, words );
+    if ( !running ) return "ERR server closed";
+    requests.add( request );
+    try {
+      return request.reply.get();
+    }
+    catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return "ERR interrupted";
+    }
+    catch ( ExecutionException e ) {
+      return "ERR " + e.getCause();
+    }
+  }
+  
+  /* Dispatcher loop: waits for a request, drains whatever else is queued
+   * (up to the batch size) and answers the batch, computing each distinct
+   * request once
+   *  -A failing query only fails its own reply (see answer); if the batch
+   *   is cut short anyway, the requests left in it are failed instead of
+   *   leaving their connections waiting, and the loop goes on
+   */
+  private void dispatch() {
+    List<Request> batch = new ArrayList<Request>( maxBatch );
+    Map<String, Request> distinct = new LinkedHashMap<String, Request>();
+    Map<String, String> answers = new HashMap<String, String>();
+    while ( running ) {
+      try {
+        Request first = requests.poll( 100, TimeUnit.MILLISECONDS );
+        if ( first == null ) continue;
+        batch.add( first );
+        requests.drainTo( batch, maxBatch - 1 );
+        for ( Request request : batch ) {
+          if ( distinct.putIfAbsent( request.key, request ) != null ) coalesced.increment();
+        }
+        answer( distinct.values(), answers );
+        for ( Request request : batch ) {
+          request.reply.complete( answers.get( request.key ) );
+        }
+        batches.increment();
+        served.add( batch.size() );
+      }
+      catch ( InterruptedException e ) {
+        if ( !running ) return;
+      }
+      catch ( RuntimeException e ) {
+        // Already failed below; the dispatcher keeps serving
+      }
+      finally {
+        for ( Request request : batch ) {
+          request.reply.completeExceptionally( new IllegalStateException( "dispatcher failed" ) );
+        }
+        batch.clear();
+        distinct.clear();
+        answers.clear();
+      }
+    }
+  }
+  
+  /* Method for answering distinct requests into "answers" (by key) with 
+   * one batch query per command
+   *  -A request naming a noun that is not in the WordNet is answered on its
+   *   own, so it cannot fail the batch query of the others
+   *  -If a batch query fails anyway, its requests are answered one by one
+   */
+  private void answer( Collection<Request> distinct, Map<String, String> answers ) {
+    List<Request> distances = new ArrayList<Request>();
+    List<Request> scas = new ArrayList<Request>();
+    List<Request> outcasts = new ArrayList<Request>();
+    for ( Request request : distinct ) {
+      if ( !allNouns( request.words ) ) answers.put( request.key, answer( request ) );
+      else if ( request.command.equals( "DISTANCE" ) ) distances.add( request );
+      else if ( request.command.equals( "SCA" ) ) scas.add( request );
+      else outcasts.add( request );
+    }
+    
+    if ( !distances.isEmpty() ) {
+      try {
+        int[] results = wordnet.distances( words( distances, 1 ), words( distances, 2 ) );
+        for ( int i = 0; i < results.length; i++ ) {
+          answers.put( distances.get( i ).key, "OK " + results[i] );
+        }
+      }
+      catch ( RuntimeException e ) {
+        answerEach( distances, answers );
+      }
+    }
+    if ( !scas.isEmpty() ) {
+      try {
+        WordNet.SCAResult[] results = wordnet.scaAndDistances( words( scas, 1 ), words( scas, 2 ) );
+        for ( int i = 0; i < results.length; i++ ) {
+          answers.put( scas.get( i ).key, "OK " + results[i].sca() );
+        }
+      }
+      catch ( RuntimeException e ) {
+        answerEach( scas, answers );
+      }
+    }
+    if ( !outcasts.isEmpty() ) {
+      String[][] lists = new String[outcasts.size()][];
+      for ( int i = 0; i < lists.length; i++ ) {
+        String[] words = outcasts.get( i ).words;
+        lists[i] = Arrays.copyOfRange( words, 1, words.length );
+      }
+      try {
+        String[] results = outcast.outcast( lists );
+        for ( int i = 0; i < results.length; i++ ) {
+          answers.put( outcasts.get( i ).key, "OK " + results[i] );
+        }
+      }
+      catch ( RuntimeException e ) {
+        answerEach( outcasts, answers );
+      }
+    }
+  }
+  
+  private void answerEach( List<Request> requests, Map<String, String> answers ) {
+    for ( Request request : requests ) {
+      answers.put( request.key, answer( request ) );
+    }
+  }
+  
+  // Returns true if every word after the command is a WordNet noun
+  private boolean allNouns( String[] words ) {
+    for ( int i = 1; i < words.length; i++ ) {
+      if ( !wordnet.isNoun( words[i] ) ) return false;
+    }
+    return true;
+  }
+  
+  // Word 'i' of every request, as the argument of a batch query
+  private static String[] words( List<Request> requests, int i ) {
+    String[] words = new String[requests.size()];
+    for ( int k = 0; k < words.length; k++ ) {
+      words[k] = requests.get( k ).words[i];
+    }
+    return words;
+  }
+  
+  // Answers one request; any failure of the query becomes an "ERR" reply
+  private String answer( Request request ) {
+    String[] words = request.words;
+    try {
+      switch ( request.command ) {
+        case "DISTANCE": return "OK " + wordnet.distance( words[1], words[2] );
+        case "SCA": return "OK " + wordnet.sca( words[1], words[2] );
+        default: return "OK " + outcast.outcast( Arrays.copyOfRange( words, 1, words.length ) );
+      }
+    }
+    catch ( IllegalArgumentException e ) {
+      return "ERR " + e.getMessage();
+    }
+    catch ( RuntimeException e ) {
+      return "ERR internal error " + e;
+    }
+  }
+  
+  //Returns the server counters as "name=value" pairs
+  public String stats() {
+    long b = batches.sum();
+    return "connections=" + open.size() + " accepted=" + accepted.sum() + " requests=" + served.sum()
+      + " batches=" + b + " coalesced=" + coalesced.sum()
+      + String.format( " meanBatch=%.2f", b == 0 ? 0.0 : served.sum() / ( double ) b );
+  }
+  
+  // A queued query: its normalized text (used to coalesce duplicates),
+  // the parsed words and the reply the connection thread waits for
+  private static class Request {
+    private final String key;
+    private final String command;
+    private final String[] words;
+    private final CompletableFuture<String> reply = new CompletableFuture<String>();
+  
+    Request( String key, String command, String[] words ) {
+      this.key = key;
+      this.command = command;
+      this.words = words;
+    }
+  }
+  
+  // Server Driver
+  public static void main( String[] args ) throws IOException {
+    String synsets = null;
+    String hypernyms = null;
+    String snapshot = null;
+    int port = 7575;
+    int batch = 64;
+    int dispatchers = Runtime.getRuntime().availableProcessors();
+    int cache = 0;
+    boolean metrics = false;
+    for ( int i = 0; i < args.length; i++ ) {
+      switch ( args[i] ) {
+        case "-snapshot": snapshot = args[++i]; break;
+        case "-port": port = Integer.parseInt( args[++i] ); break;
+        case "-batch": batch = Integer.parseInt( args[++i] ); break;
+        case "-dispatchers": dispatchers = Integer.parseInt( args[++i] ); break;
+        case "-cache": cache = Integer.parseInt( args[++i] ); break;
+        case "-metrics": metrics = true; break;
+        default:
+          if ( args[i].startsWith( "-" ) ) throw new IllegalArgumentException( "unknown option " + args[i] );
+          if ( synsets == null ) synsets = args[i];
+          else hypernyms = args[i];
+      }
+    }
+    if ( snapshot == null && hypernyms == null ) {
+      System.err.println( "usage: java WordNetServer (synsets.txt hypernyms.txt | -snapshot file)"
+                            + " [-port N] [-batch N] [-dispatchers N] [-cache N] [-metrics]" );
+      System.exit( 2 );
+    }
+  
+    WordNet wn = snapshot != null ? WordNet.fromSnapshot( snapshot, cache ) : new WordNet( synsets, hypernyms, cache );
+    wn.getMetrics().setEnabled( metrics );
+    WordNetServer server = new WordNetServer( wn, port, batch, dispatchers );
+    server.start();
+    System.err.println( "WordNet server listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.port() );
+  }
+}
@@ -0,0 +1,144 @@
+/******************************************************************************
+ * Compilation:  javac WordNetServerCheck.java
+ * Execution:    java WordNetServerCheck synsets.txt hypernyms.txt
+ *                 [-clients N] [-requests N]
+ * Dependencies: WordNet.java, WordNetServer.java, Outcast.java
+ * ----------------------------------------------------------------------------
+ * Round-trip check driver for WordNetServer. Starts a server on a free
+ * loopback port and connects "-clients" clients at once. Each one pipelines
+ * "-requests" DISTANCE, SCA and OUTCAST requests (the nouns are drawn from a
+ * small pool, so the dispatchers see duplicates, and every tenth request
+ * names a noun that is not in the WordNet). It then reads the replies back
+ * and compares every one with the answer of the WordNet itself.
+ * 
+ * Prints the amount of requests, mismatches and the server counters, and
+ * exits with status 1 if any reply was wrong.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import edu.princeton.cs.algs4.StdOut;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class WordNetServerCheck {
+  
+  // Check Driver
+  public static void main( String[] args ) throws IOException, InterruptedException {
+    if ( args.length < 2 ) {
+      System.err.println( "usage: java WordNetServerCheck synsets.txt hypernyms.txt"
+                            + " [-clients N] [-requests N]" );
+      System.exit( 2 );
+    }
+    int clientCount = 8;
+    int requestCount = 500;
+    for ( int i = 2; i < args.length; i++ ) {
+      switch ( args[i] ) {
+        case "-clients": clientCount = Integer.parseInt( args[++i] ); break;
+        case "-requests": requestCount = Integer.parseInt( args[++i] ); break;
+        default: throw new IllegalArgumentException( "unknown option " + args[i] );
+      }
+    }
+    
+    WordNet wn = new WordNet( args[0], args[1] );
+    Outcast outcast = new Outcast( wn );
+    List<String> pool = new ArrayList<String>();
+    for ( String noun : wn.nouns() ) {
+      pool.add( noun );
+      if ( pool.size() == 200 ) break;
+    }
+    
+    AtomicLong mismatches = new AtomicLong();
+    AtomicLong failures = new AtomicLong();
+    int requests = requestCount;
+    try ( WordNetServer server = new WordNetServer( wn, 0, 64, 2 ) ) {
+      server.start();
+      long start = System.nanoTime();
+      Thread[] clients = new Thread[clientCount];
+      for ( int c = 0; c < clients.length; c++ ) {
+        Random random = new Random( c );
+        String[] lines = new String[requests];
+        String[] expected = new String[requests];
+        for ( int i = 0; i < requests; i++ ) {
+          String a = pool.get( random.nextInt( pool.size() ) );
+          String b = i % 10 == 9 ? "not_a_wordnet_noun" : pool.get( random.nextInt( pool.size() ) );
+          String d = pool.get( random.nextInt( pool.size() ) );
+          boolean known = wn.isNoun( b );
+          switch ( i % 3 ) {
+            case 0:
+              lines[i] = "DISTANCE " + a + " " + b;
+              expected[i] = known ? "OK " + wn.distance( a, b ) : null;
+              break;
+            case 1:
+              lines[i] = "sca " + a + "\t" + b;
+              expected[i] = known ? "OK " + wn.sca( a, b ) : null;
+              break;
+            default:
+              lines[i] = "OUTCAST " + a + " " + b + " " + d;
+              expected[i] = known ? "OK " + outcast.outcast( new String[] { a, b, d } ) : null;
+          }
+        }
+        clients[c] = new Thread( () -> {
+          try {
+            roundTrip( server.port(), lines, expected, mismatches );
+          }
+          catch ( IOException | InterruptedException e ) {
+            if ( failures.incrementAndGet() == 1 ) e.printStackTrace();
+          }
+        }, "client-" + c );
+        clients[c].start();
+      }
+      for ( Thread client : clients ) client.join();
+    
+      double seconds = ( System.nanoTime() - start ) / 1e9;
+      StdOut.printf( "%d clients sent %d requests in %.2f s: %d wrong replies, %d failed clients%n",
+                     clientCount, clientCount * requests, seconds, mismatches.get(), failures.get() );
+      StdOut.println( server.stats() );
+    }
+    if ( mismatches.get() > 0 || failures.get() > 0 ) System.exit( 1 );
+  }
+  
+  // Sends every line on one connection (from a second thread, so requests
+  // are pipelined) while reading the replies; a null expected reply means
+  // the request must fail with "ERR"
+  private static void roundTrip( int port, String[] lines, String[] expected, AtomicLong mismatches )
+    throws IOException, InterruptedException {
+    try ( Socket socket = new Socket( InetAddress.getLoopbackAddress(), port ) ) {
+      Writer out = new BufferedWriter( new OutputStreamWriter( socket.getOutputStream(), StandardCharsets.UTF_8 ) );
+      BufferedReader in = new BufferedReader( new InputStreamReader( socket.getInputStream(), StandardCharsets.UTF_8 ) );
+      Thread sender = new Thread( () -> {
+        try {
+          for ( String line : lines ) {
+            out.write( line );
+            out.write( '\n' );
+          }
+          out.write( "QUIT\n" );
+          out.flush();
+        }
+        catch ( IOException e ) {
+          // The reading side sees the connection end early
+        }
+      } );
+      sender.start();
+      for ( int i = 0; i < lines.length; i++ ) {
+        String reply = in.readLine();
+        boolean ok = expected[i] == null ? reply != null && reply.startsWith( "ERR " ) : expected[i].equals( reply );
+        if ( !ok && mismatches.incrementAndGet() <= 5 )
+          System.err.println( lines[i] + " -> " + reply + " (expected " + ( expected[i] == null ? "ERR" : expected[i] ) + ")" );
+      }
+      if ( in.readLine() != null ) mismatches.incrementAndGet();
+      sender.join();
+    }
+  }
+}
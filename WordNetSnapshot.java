@@ -0,0 +1,220 @@
+/******************************************************************************
+ * Compilation:  javac WordNetSnapshot.java
+ * Dependencies: WordNet.java, ShortestCommonAncestor.java, HypernymGraph.java,
+ *               NounIndex.java, StringArena.java
+ * ----------------------------------------------------------------------------
+ * Reads and writes the versioned binary snapshot of a loaded WordNet. The
+ * file is a fixed header followed by 4-byte aligned sections (all ints big
+ * endian):
+ * 
+ *   header         magic, version, V, E, root, synset bytes, noun count,
+ *                  id count, hash slot count
+ *   offsets        int[V + 1]   renumbered hypernym graph (HypernymGraph)
+ *   targets        int[E]
+ *   revOffsets     int[V + 1]   hyponym edges of the same graph
+ *   revTargets     int[E]
+ *   toInternal     int[V]       synset id -> graph vertex
+ *   toOriginal     int[V]       graph vertex -> synset id
+ *   synsetOffsets  int[V + 1]   synset strings (StringArena)
+ *   synsetBytes    byte[]
+ *   nounStarts     int[n]       distinct nouns as spans of synsetBytes
+ *   nounEnds       int[n]
+ *   idOffsets      int[n + 1]   synset ids of every noun (NounIndex)
+ *   ids            int[]
+ *   slots          int[]        noun hash table (NounIndex)
+ * 
+ * Reading maps the file with a FileChannel so the nouns and synsets are used
+ * straight from the page cache (which several JVMs on one host share). The
+ * graph sections are bulk-copied into int arrays since every BFS step reads
+ * them.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class WordNetSnapshot {
+  
+  private static final int MAGIC = 0x574E5353; // "WNSS"
+  private static final int VERSION = 3;
+  private static final int HEADER_INTS = 9;
+  
+  private WordNetSnapshot() { }
+  
+  /* Method for writing a WordNet into a snapshot file
+   *  -Throws "IllegalArgumentException" if the file cannot be written
+   * 
+   * @param WordNet object and String representing the file
+   */
+  static void write( WordNet wordnet, String file ) {
+    ShortestCommonAncestor sca = wordnet.getSCA();
+    StringArena synsets = wordnet.synsetArena();
+    NounIndex nouns = wordnet.nounIndex();
+    StringArena nounArena = nouns.nounArena();
+    HypernymGraph graph = sca.graph();
+    
+    try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), 1 << 16 ) ) ) {
+      out.writeInt( MAGIC );
+      out.writeInt( VERSION );
+      out.writeInt( graph.V() );
+      out.writeInt( graph.E() );
+      out.writeInt( sca.root() );
+      out.writeInt( byteCount( synsets ) );
+      out.writeInt( nounArena.size() );
+      out.writeInt( nouns.ids().limit() );
+      out.writeInt( nouns.slots().limit() );
+      
+      writeInts( out, IntBuffer.wrap( graph.offsets() ) );
+      writeInts( out, IntBuffer.wrap( graph.targets() ) );
+      writeInts( out, IntBuffer.wrap( graph.revOffsets() ) );
+      writeInts( out, IntBuffer.wrap( graph.revTargets() ) );
+      writeInts( out, IntBuffer.wrap( graph.toInternal() ) );
+      writeInts( out, IntBuffer.wrap( graph.toOriginal() ) );
+      writeArena( out, synsets );
+      writeInts( out, nounArena.offsets() );
+      writeInts( out, nounArena.ends() );
+      writeInts( out, nouns.idOffsets() );
+      writeInts( out, nouns.ids() );
+      writeInts( out, nouns.slots() );
+    }
+    catch ( IOException e ) {
+      throw new IllegalArgumentException( "Could not write snapshot " + file, e );
+    }
+  }
+  
+  /* Method for opening a snapshot file
+   *  -Throws "IllegalArgumentException" if the file cannot be read, is not a
+   *   snapshot, was written by an unsupported version or is truncated (its
+   *   header counts are checked against the file size before anything is 
+   *   allocated)
+   * 
+   * @param String representing the file and the capacity of the result 
+   *        cache (0 for none)
+   * @return WordNet object backed by the mapped file
+   */
+  static WordNet read( String file, int cacheCapacity ) {
+    long start = System.nanoTime();
+    MappedByteBuffer map;
+    try ( FileChannel channel = FileChannel.open( Paths.get( file ), StandardOpenOption.READ ) ) {
+      map = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+    }
+    catch ( IOException e ) {
+      throw new IllegalArgumentException( "Could not read snapshot " + file, e );
+    }
+    if ( map.capacity() < 4 * HEADER_INTS || map.getInt( 0 ) != MAGIC ) 
+      throw new IllegalArgumentException( file + " is not a WordNet snapshot" );
+    if ( map.getInt( 4 ) != VERSION ) 
+      throw new IllegalArgumentException( "Unsupported snapshot version " + map.getInt( 4 ) );
+    
+    int V = map.getInt( 8 );
+    int E = map.getInt( 12 );
+    int root = map.getInt( 16 );
+    int synsetBytes = map.getInt( 20 );
+    int nounCount = map.getInt( 24 );
+    int idCount = map.getInt( 28 );
+    int slotCount = map.getInt( 32 );
+    if ( V < 0 || E < 0 || synsetBytes < 0 || nounCount < 0 || idCount < 0 || slotCount < 0 
+          || ( V > 0 && ( root < 0 || root >= V ) ) )
+      throw new IllegalArgumentException( file + " is a corrupt WordNet snapshot" );
+    // Every section in the order they are read, in long arithmetic so that
+    // huge counts cannot overflow
+    long size = 4L * HEADER_INTS + 4L * ( 3L * ( V + 1L ) + 2L * E + 2L * V ) + ( ( synsetBytes + 3L ) & ~3L )
+                  + 4L * ( 3L * nounCount + 1 + idCount + slotCount );
+    if ( size > map.capacity() ) 
+      throw new IllegalArgumentException( file + " is truncated (" + map.capacity() + " of " + size + " bytes)" );
+    
+    int pos = 4 * HEADER_INTS;
+    int[] offsets = new int[V + 1];
+    ints( map, pos, V + 1 ).get( offsets );
+    pos += 4 * ( V + 1 );
+    int[] targets = new int[E];
+    ints( map, pos, E ).get( targets );
+    pos += 4 * E;
+    int[] revOffsets = new int[V + 1];
+    ints( map, pos, V + 1 ).get( revOffsets );
+    pos += 4 * ( V + 1 );
+    int[] revTargets = new int[E];
+    ints( map, pos, E ).get( revTargets );
+    pos += 4 * E;
+    int[] toInternal = new int[V];
+    ints( map, pos, V ).get( toInternal );
+    pos += 4 * V;
+    int[] toOriginal = new int[V];
+    ints( map, pos, V ).get( toOriginal );
+    pos += 4 * V;
+    
+    IntBuffer synsetOffsets = ints( map, pos, V + 1 );
+    pos += 4 * ( V + 1 );
+    ByteBuffer synsetBuffer = bytes( map, pos, synsetBytes );
+    StringArena synsets = new StringArena( synsetBuffer, synsetOffsets );
+    pos += padded( synsetBytes );
+    
+    IntBuffer nounStarts = ints( map, pos, nounCount );
+    pos += 4 * nounCount;
+    IntBuffer nounEnds = ints( map, pos, nounCount );
+    pos += 4 * nounCount;
+    StringArena nounArena = new StringArena( synsetBuffer, nounStarts, nounEnds );
+    
+    IntBuffer idOffsets = ints( map, pos, nounCount + 1 );
+    pos += 4 * ( nounCount + 1 );
+    IntBuffer ids = ints( map, pos, idCount );
+    pos += 4 * idCount;
+    IntBuffer slots = ints( map, pos, slotCount );
+    
+    ShortestCommonAncestor sca = new ShortestCommonAncestor( 
+      new HypernymGraph( offsets, targets, revOffsets, revTargets, toInternal, toOriginal ) );
+    sca.setRoot( root );
+    sca.getMetrics().recordLoadPhase( "snapshot.open", System.nanoTime() - start );
+    return new WordNet( synsets, sca, new NounIndex( nounArena, idOffsets, ids, slots ), cacheCapacity );
+  }
+  
+  // Amount of UTF-8 bytes used by an arena
+  private static int byteCount( StringArena arena ) {
+    return arena.offsets().get( arena.size() );
+  }
+  
+  // Rounds a byte count up to the next multiple of 4
+  private static int padded( int bytes ) {
+    return ( bytes + 3 ) & ~3;
+  }
+  
+  private static void writeInts( DataOutputStream out, IntBuffer ints ) throws IOException {
+    for ( int i = 0; i < ints.limit(); i++ ) {
+      out.writeInt( ints.get( i ) );
+    }
+  }
+  
+  // Writes the offsets, then the bytes padded to a 4-byte boundary
+  private static void writeArena( DataOutputStream out, StringArena arena ) throws IOException {
+    writeInts( out, arena.offsets() );
+    ByteBuffer bytes = arena.bytes();
+    int count = byteCount( arena );
+    for ( int i = 0; i < count; i++ ) {
+      out.writeByte( bytes.get( i ) );
+    }
+    for ( int i = count; i < padded( count ); i++ ) {
+      out.writeByte( 0 );
+    }
+  }
+  
+  // Views of a section of the mapping
+  private static IntBuffer ints( ByteBuffer map, int pos, int count ) {
+    return bytes( map, pos, 4 * count ).asIntBuffer();
+  }
+  
+  private static ByteBuffer bytes( ByteBuffer map, int pos, int count ) {
+    ByteBuffer section = map.duplicate();
+    section.position( pos );
+    section.limit( pos + count );
+    return section.slice();
+  }
+}
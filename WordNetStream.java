@@ -0,0 +1,286 @@
+/******************************************************************************
+ * Compilation:  javac WordNetStream.java
+ * Execution:    java WordNetStream (synsets.txt hypernyms.txt | -snapshot file)
+ *                 [-mode pairs|outcast] [-input file] [-output file] [-sca]
+ *                 [-batch N] [-threads N] [-queue N] [-cache N]
+ * Dependencies: WordNet.java, Outcast.java
+ * ----------------------------------------------------------------------------
+ * Command-line entry point for scoring large amounts of noun pairs (or
+ * outcast lists) with one loaded WordNet. Input is read as a stream from
+ * stdin (or "-input"), one query per line:
+ *   pairs     "noun1 noun2"        ->  "noun1 \t noun2 \t distance [\t sca]"
+ *   outcast   "noun1 noun2 ..."    ->  "outcast"
+ * A line that cannot be answered (unknown noun, wrong amount of nouns) is
+ * written back with "\tERROR " and the reason instead of stopping the run.
+ * 
+ * The pipeline has three stages:
+ *   -the reading thread cuts the input into batches of "-batch" lines and
+ *    hands each one to a fixed pool of "-threads" workers
+ *   -the workers answer their batch into one block of text
+ *   -the writing thread writes the blocks in input order through a large
+ *    buffer
+ * At most "-queue" batches are in flight; once that many are waiting to be
+ * written, the reading thread blocks, so memory stays bounded no matter how
+ * far the input is ahead of the output. The amount of queries, errors and
+ * queries per second are reported on stderr at the end.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+public class WordNetStream {
+  
+  // Marks the end of the input on the queue of pending batches
+  private static final Future<String> END = CompletableFuture.completedFuture( null );
+  
+  private final WordNet wordnet;
+  private final Outcast outcast;
+  private final boolean outcastMode;
+  private final boolean withSca;
+  private final int batchSize;
+  private final int threads;
+  private final int queueSize;
+  private long queries;
+  private long errors;
+  // First failure of the writing thread (stops the reading thread)
+  private volatile IOException writeFailure;
+  
+  /* Constructor for WordNetStream object
+   * 
+   * @param WordNet to query, whether lines are outcast lists (instead of
+   *        pairs), whether pairs also get their sca, lines per batch, amount
+   *        of worker threads and the maximum of batches in flight
+   */
+  public WordNetStream( WordNet wordnet, boolean outcastMode, boolean withSca, int batchSize, int threads, int queueSize ) {
+    if ( wordnet == null ) throw new NullPointerException();
+    if ( batchSize <= 0 || threads <= 0 || queueSize <= 0 )
+      throw new IllegalArgumentException( "batch, threads and queue must be positive" );
+    this.wordnet = wordnet;
+    this.outcast = new Outcast( wordnet );
+    this.outcastMode = outcastMode;
+    this.withSca = withSca;
+    this.batchSize = batchSize;
+    this.threads = threads;
+    this.queueSize = queueSize;
+  }
+  
+  /* Method for answering every line of "in" and writing the results to
+   * "out" in input order
+   *  -Neither stream is closed; "out" is flushed at the end
+   * 
+   * @param input and output streams
+   * @return long variable representing the amount of queries answered
+   */
+  public long run( InputStream in, OutputStream out ) throws IOException {
+    BufferedReader reader = new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ), 1 << 16 );
+    Writer writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ), 1 << 16 );
+    BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<Future<String>>( queueSize );
+    ExecutorService workers = Executors.newFixedThreadPool( threads, r -> {
+      Thread thread = new Thread( r, "wordnet-stream-worker" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    writeFailure = null;
+    Thread writerThread = new Thread( () -> write( pending, writer ), "wordnet-stream-writer" );
+    writerThread.setDaemon( true );
+    writerThread.start();
+  
+    try {
+      String[] batch = new String[batchSize];
+      int size = 0;
+      for ( String line = reader.readLine(); line != null && writeFailure == null; line = reader.readLine() ) {
+        if ( line.isEmpty() ) continue;
+        batch[size++] = line;
+        if ( size == batchSize ) {
+          submit( workers, pending, batch, size );
+          batch = new String[batchSize];
+          size = 0;
+        }
+      }
+      if ( size > 0 ) submit( workers, pending, batch, size );
+      pending.put( END );
+      writerThread.join();
+    }
+    catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "interrupted", e );
+    }
+    finally {
+      workers.shutdownNow();
+      // Still running only if reading failed: END never comes, so it is 
+      // woken up from waiting for it (or for a batch that was dropped)
+      if ( writerThread.isAlive() ) {
+        writerThread.interrupt();
+        try {
+          writerThread.join();
+        }
+        catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    if ( writeFailure != null ) throw writeFailure;
+    synchronized ( this ) {
+      return queries;
+    }
+  }
+  
+  // Writes the answered batches in the order they were queued until END
+  private void write( BlockingQueue<Future<String>> pending, Writer writer ) {
+    try {
+      for ( Future<String> batch = pending.take(); batch != END; batch = pending.take() ) {
+        if ( writeFailure == null ) {
+          try {
+            writer.write( batch.get() );
+          }
+          catch ( IOException e ) {
+            writeFailure = e;
+          }
+          catch ( ExecutionException e ) {
+            writeFailure = new IOException( "query failed", e.getCause() );
+          }
+        }
+        // After a failure the queue is still drained, so the reading 
+        // thread never blocks on a full queue
+      }
+      if ( writeFailure == null ) writer.flush();
+    }
+    catch ( IOException e ) {
+      writeFailure = e;
+    }
+    catch ( InterruptedException e ) {
+      writeFailure = new IOException( "interrupted", e );
+    }
+  }
+  
+  // Hands a batch to the workers; blocks while "-queue" batches are pending
+  private void submit( ExecutorService workers, BlockingQueue<Future<String>> pending, String[] lines, int size )
+    throws InterruptedException {
+    pending.put( workers.submit( () -> answer( lines, size ) ) );
+  }
+  
+  // Answers a batch of lines into one block of output text
+  private String answer( String[] lines, int size ) {
+    StringBuilder out = new StringBuilder( 32 * size );
+    int failed = 0;
+    for ( int i = 0; i < size; i++ ) {
+      String line = lines[i];
+      String[] nouns = line.trim().split( "\\s+" );
+      int start = out.length();
+      try {
+        if ( outcastMode ) {
+          if ( nouns.length < 2 ) throw new IllegalArgumentException( "Need at least 2 nouns" );
+          out.append( outcast.outcast( nouns ) );
+        }
+        else {
+          if ( nouns.length != 2 ) throw new IllegalArgumentException( "Need exactly 2 nouns" );
+          out.append( nouns[0] ).append( '\t' ).append( nouns[1] ).append( '\t' );
+          if ( withSca ) {
+            WordNet.SCAResult result = wordnet.scaAndDistance( nouns[0], nouns[1] );
+            out.append( result.distance() ).append( '\t' ).append( result.sca() );
+          }
+          else out.append( wordnet.distance( nouns[0], nouns[1] ) );
+        }
+      }
+      catch ( IllegalArgumentException e ) {
+        // Drops whatever part of the answer was written for this line
+        out.setLength( start );
+        out.append( line ).append( "\tERROR " ).append( e.getMessage() );
+        failed++;
+      }
+      out.append( '\n' );
+    }
+    synchronized ( this ) {
+      queries += size;
+      errors += failed;
+    }
+    return out.toString();
+  }
+  
+  //Returns the amount of lines that could not be answered so far
+  public synchronized long errors() {
+    return errors;
+  }
+  
+  // Stream Driver
+  public static void main( String[] args ) throws IOException {
+    String synsets = null;
+    String hypernyms = null;
+    String snapshot = null;
+    String input = null;
+    String output = null;
+    boolean outcastMode = false;
+    boolean withSca = false;
+    int batch = 256;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int queue = 4 * threads;
+    int cache = 0;
+    for ( int i = 0; i < args.length; i++ ) {
+      switch ( args[i] ) {
+        case "-snapshot": snapshot = args[++i]; break;
+        case "-mode":
+          String mode = args[++i];
+          if ( !mode.equals( "pairs" ) && !mode.equals( "outcast" ) ) usage();
+          outcastMode = mode.equals( "outcast" );
+          break;
+        case "-input": input = args[++i]; break;
+        case "-output": output = args[++i]; break;
+        case "-sca": withSca = true; break;
+        case "-batch": batch = Integer.parseInt( args[++i] ); break;
+        case "-threads": threads = Integer.parseInt( args[++i] ); break;
+        case "-queue": queue = Integer.parseInt( args[++i] ); break;
+        case "-cache": cache = Integer.parseInt( args[++i] ); break;
+        default:
+          if ( args[i].startsWith( "-" ) ) throw new IllegalArgumentException( "unknown option " + args[i] );
+          if ( synsets == null ) synsets = args[i];
+          else hypernyms = args[i];
+      }
+    }
+    if ( snapshot == null && hypernyms == null ) usage();
+  
+    long start = System.nanoTime();
+    WordNet wn = snapshot != null ? WordNet.fromSnapshot( snapshot, cache ) : new WordNet( synsets, hypernyms, cache );
+    long loaded = System.nanoTime();
+    WordNetStream stream = new WordNetStream( wn, outcastMode, withSca, batch, threads, queue );
+    InputStream in = input == null ? System.in : new FileInputStream( input );
+    OutputStream out = output == null ? System.out : new FileOutputStream( output );
+    long count;
+    try {
+      count = stream.run( in, out );
+    }
+    finally {
+      if ( input != null ) in.close();
+      if ( output != null ) out.close();
+    }
+    double seconds = ( System.nanoTime() - loaded ) / 1e9;
+    System.err.printf( "loaded in %.0f ms; %d %s (%d errors) in %.2f s = %.0f per second%n",
+                       ( loaded - start ) / 1e6, count, outcastMode ? "lists" : "pairs", stream.errors(),
+                       seconds, count / seconds );
+  }
+  
+  // Prints the command line and exits with status 2
+  private static void usage() {
+    System.err.println( "usage: java WordNetStream (synsets.txt hypernyms.txt | -snapshot file)"
+                          + " [-mode pairs|outcast] [-input file] [-output file] [-sca]"
+                          + " [-batch N] [-threads N] [-queue N] [-cache N]" );
+    System.exit( 2 );
+  }
+}
@@ -0,0 +1,78 @@
+/******************************************************************************
+ * Compilation:  javac WordNetUpdateCheck.java
+ * Execution:    java WordNetUpdateCheck synsets.txt hypernyms.txt
+ *                 [-synset id] [-readers N] [-updates N]
+ * Dependencies: WordNet.java
+ * ----------------------------------------------------------------------------
+ * Check driver for serving queries while a WordNet is being updated. Reader
+ * threads keep walking the graph below one synset with nearest (which
+ * visits every synset added under it and prints each one) while the main
+ * thread adds "-updates" new synsets under that synset. Any exception a
+ * reader runs into means an update became visible in the graph before the
+ * rest of it (e.g. a vertex before its synset string).
+ * 
+ * Prints the amount of reads and failures and exits with status 1 if any
+ * read failed.
+ * 
+ * Author:@Julian Ceja, @Dakota Jackson
+ * ***************************************************************************/
+import edu.princeton.cs.algs4.StdOut;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class WordNetUpdateCheck {
+  
+  // Check Driver
+  public static void main( String[] args ) throws InterruptedException {
+    if ( args.length < 2 ) {
+      System.err.println( "usage: java WordNetUpdateCheck synsets.txt hypernyms.txt"
+                            + " [-synset id] [-readers N] [-updates N]" );
+      System.exit( 2 );
+    }
+    int synset = 1000;
+    int readerCount = 3;
+    int updates = 500;
+    for ( int i = 2; i < args.length; i++ ) {
+      switch ( args[i] ) {
+        case "-synset": synset = Integer.parseInt( args[++i] ); break;
+        case "-readers": readerCount = Integer.parseInt( args[++i] ); break;
+        case "-updates": updates = Integer.parseInt( args[++i] ); break;
+        default: throw new IllegalArgumentException( "unknown option " + args[i] );
+      }
+    }
+    
+    WordNet wn = new WordNet( args[0], args[1] );
+    String noun = wn.synset( synset ).split( " " )[0];
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicLong reads = new AtomicLong();
+    AtomicLong failures = new AtomicLong();
+    Thread[] readers = new Thread[readerCount];
+    for ( int t = 0; t < readers.length; t++ ) {
+      readers[t] = new Thread( () -> {
+        while ( !done.get() ) {
+          try {
+            wn.nearest( noun, Integer.MAX_VALUE );
+          }
+          catch ( RuntimeException e ) {
+            if ( failures.incrementAndGet() == 1 ) e.printStackTrace();
+          }
+          reads.incrementAndGet();
+        }
+      }, "reader-" + t );
+      readers[t].start();
+    }
+    
+    long start = System.nanoTime();
+    for ( int i = 0; i < updates; i++ ) {
+      wn.addSynset( "update_check_" + i, synset );
+    }
+    done.set( true );
+    for ( Thread reader : readers ) reader.join();
+    
+    StdOut.println( updates + " synsets added under " + synset + " in "
+                     + ( System.nanoTime() - start ) / 1000000 + " ms while " + readerCount + " readers ran "
+                     + reads.get() + " nearest walks: " + failures.get() + " failed" );
+    if ( failures.get() > 0 ) System.exit( 1 );
+  }
+}